@@ -0,0 +1,58 @@
+package fr.univparis.metro;
+
+import java.util.HashMap;
+
+/**
+ * Functionnal class where the A* algorithm is implemented, using {@link Landmarks} as heuristic (ALT algorithm).
+ * The vertices are explored in the order of their distance to the start plus a lower bound of their distance to the target,
+ * so the search stays in a corridor around the shortest path instead of exploring every vertex closer to the start than the target.
+ */
+public class AStar {
+
+    /**
+    * Used to find the shortest path between a starting T and a target T of a graph.
+    * It has the same contract as {@link Dijkstra#shortestPath(WGraph, Object, Object, HashMap, HashMap)},
+    * the landmarks must be valid for g (see {@link Landmarks#isLowerBoundOf(WGraph)}).
+    * @param g         Graph of T where we search a shortest path
+    * @param landmarks the lower bounds of the distances in g
+    * @param s         T where we begin our path
+    * @param target    T where we want to go
+    * @param prev      HashMap where for each explored T is associate the previous T for the shortest path since s
+    * @param dist      HashMap where for each explored T is associate his distance to s
+    * @param <T> the type of the vertex
+    */
+    public static <T> void shortestPath (WGraph<T> g, Landmarks<T> landmarks, T s, T target, HashMap<T, T> prev, HashMap<T, Double> dist) {
+      PriorityQueue<T> priQueue = new PriorityQueue<T>();
+      HashMap<T, Double> bound = new HashMap<T, Double>();
+      dist.clear();
+      prev.clear();
+      if (g.containsVertex(s)) {
+        dist.put(s, 0.);
+        priQueue.add(s, landmarks.lowerBound(s, target));
+      }
+
+      while (!priQueue.isEmpty()){
+        T u = priQueue.poll();
+        if (u.equals(target)) break;
+        Double du = dist.get(u);
+        for (T st : g.neighbors(u)) {
+          Double d = du + g.weight(u, st);
+          Double old = dist.get(st);
+          if (old == null ? d < Double.POSITIVE_INFINITY : old > d){
+            Double h = bound.get(st);
+            if (h == null) {
+              h = landmarks.lowerBound(st, target);
+              bound.put(st, h);
+            }
+            // the target can't be reached from st
+            if (h == Double.POSITIVE_INFINITY) continue;
+            dist.put(st, d);
+            if (!priQueue.updatePriority(st, d + h)) priQueue.add(st, d + h);
+            prev.put(st, u);
+          }
+        }
+      }
+      if (!dist.containsKey(target)) dist.put(target, Double.POSITIVE_INFINITY);
+    }
+
+}
@@ -0,0 +1,84 @@
+package fr.univparis.metro;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * Functionnal class where a bidirectional version of Dijkstra algorithm is implemented.
+ * A forward search from the start and a backward search from the target (using {@link WGraph#predecessors(Object)}) are run alternately
+ * and the search stops as soon as no path shorter than the best path found through a vertex reached by both searches can exist.
+ */
+public class BidirectionalDijkstra {
+
+   /**
+    * Used to find the shortest path between a starting T and a target T of a graph
+    * @param g      Graph of T where we search a shortest path
+    * @param s      T where we begin our path
+    * @param target T where we want to go
+    * @param <T> the type of the vertex
+    * @return a pair whose obj is the list of the vertices of the shortest path from s to target (both included)
+    *         and whose value is its length, or an empty list and positive infinity if there is no path
+    */
+    public static <T> Pair<LinkedList<T>, Double> shortestPath(WGraph<T> g, T s, T target) {
+      LinkedList<T> path = new LinkedList<T>();
+      if (! g.containsVertex(s) || ! g.containsVertex(target))
+        return new Pair<LinkedList<T>, Double>(path, Double.POSITIVE_INFINITY);
+      if (s.equals(target)) {
+        path.add(s);
+        return new Pair<LinkedList<T>, Double>(path, 0.);
+      }
+
+      HashMap<T, Double> distF = new HashMap<T, Double>();
+      HashMap<T, Double> distB = new HashMap<T, Double>();
+      HashMap<T, T> prevF = new HashMap<T, T>();
+      HashMap<T, T> nextB = new HashMap<T, T>();
+      PriorityQueue<T> queueF = new PriorityQueue<T>();
+      PriorityQueue<T> queueB = new PriorityQueue<T>();
+      distF.put(s, 0.);
+      distB.put(target, 0.);
+      queueF.add(s, 0.);
+      queueB.add(target, 0.);
+
+      double best = Double.POSITIVE_INFINITY;
+      T meeting = null;
+      // radius of each search: the distance of the last vertex it settled
+      double radiusF = 0., radiusB = 0.;
+      boolean forward = true;
+
+      while (! queueF.isEmpty() && ! queueB.isEmpty()) {
+        PriorityQueue<T> queue = forward ? queueF : queueB;
+        HashMap<T, Double> dist = forward ? distF : distB;
+        HashMap<T, Double> otherDist = forward ? distB : distF;
+        HashMap<T, T> prev = forward ? prevF : nextB;
+
+        T u = queue.poll();
+        double du = dist.get(u);
+        if (forward) radiusF = du;
+        else radiusB = du;
+        if (radiusF + radiusB >= best) break;
+
+        for (T v : forward ? g.neighbors(u) : g.predecessors(u)) {
+          double d = du + (forward ? g.weight(u, v) : g.weight(v, u));
+          Double old = dist.get(v);
+          if (old == null ? d < Double.POSITIVE_INFINITY : old > d) {
+            dist.put(v, d);
+            if (! queue.updatePriority(v, d)) queue.add(v, d);
+            prev.put(v, u);
+          }
+          Double other = otherDist.get(v);
+          if (other != null && dist.get(v) + other < best) {
+            best = dist.get(v) + other;
+            meeting = v;
+          }
+        }
+        forward = ! forward;
+      }
+
+      if (meeting == null)
+        return new Pair<LinkedList<T>, Double>(path, Double.POSITIVE_INFINITY);
+      for (T t = meeting; t != null; t = prevF.get(t)) path.addFirst(t);
+      for (T t = nextB.get(meeting); t != null; t = nextB.get(t)) path.addLast(t);
+      return new Pair<LinkedList<T>, Double>(path, best);
+    }
+
+}
@@ -1,5 +1,6 @@
 package fr.univparis.metro;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.lang.Integer;
 import java.lang.Double;
@@ -12,36 +13,12 @@ import java.util.function.BiPredicate;
  */
 public class BouarahAlgorithm {
 
-    /**
-     * Initialize *dist* and *priQueue*
-     * For each pair (V,k) where V is a vertex in *graph* and k is an integer between 0 and *limit*
-     * (V,k) is added to *dist* with value infinity if V != *start*. If V == start then (V,0) is added with value 0.0 and for k greater than 1, (V,k) with infinity
-     * (V,k) is added into *priQueue* with priority dist[(V,k)]
-     */
-    private static <T> void initShortestPath(WGraph<T> graph, T start, int limit, HashMap<Pair<T, Integer>, Double> dist, PriorityQueue<Pair<T,Integer>> priQueue) {
-	Pair<T, Integer> p = new Pair<T, Integer>(start, 0);
-
-	dist.put(p, 0.0);
-	for(int i=1; i <= limit; i++) {
-	    p = new Pair<T,Integer>(start, i);
-	    dist.put(p, Double.POSITIVE_INFINITY);
-	}
-
-	for ( T vertex : graph.getVertices() ) {
-	    for(int i=0; i <= limit; i++) {
-		p = new Pair<T, Integer>(vertex, i);
-		if( !vertex.equals(start) )
-		    dist.put(p, Double.POSITIVE_INFINITY);
-		priQueue.add( p, dist.get(p));
-	    }
-	}
-    }
-
-
     /**
      * Find the shortest path with a limit on the number of transitions between equivalence classes.
      * Each vertex of the graph is associated with an integer k going from 0 to limit, so (V,5) mean vertex V with exactly 5 transitions.
      * As a result, the number of vertices is multiplied by (limit+1).
+     * The search is run on a {@link CSRGraph} of graph which is built on every call: a caller running several searches on the same graph
+     * should build it once and use {@link #shortestPath(CSRGraph, Object, int, BiPredicate, HashMap, HashMap)}.
      *
      * @param graph                 A weighted and oriented graph
      * @param start                 The starting vertex for research
@@ -53,41 +30,117 @@ public class BouarahAlgorithm {
      */
     public static <T> void shortestPath (WGraph<T> graph, T start, int limit, BiPredicate<T,T> equivalenceRelation,
 					 HashMap<Pair<T, Integer>, Pair<T, Integer>> prev, HashMap<Pair<T, Integer>, Double> dist) {
-	PriorityQueue<Pair<T, Integer>> priQueue = new PriorityQueue<Pair<T, Integer>>( (limit+1)*graph.nbVertex() );
+	shortestPath(new CSRGraph<T>(graph), start, limit, equivalenceRelation, prev, dist);
+    }
+
+    /**
+     * Find the shortest path with a limit on the number of transitions between equivalence classes in a {@link CSRGraph}.
+     * It behaves as {@link #shortestPath(WGraph, Object, int, BiPredicate, HashMap, HashMap)} but walks the arrays of the CSRGraph instead of the HashMaps of a WGraph.
+     *
+     * @param graph                 A weighted and oriented graph in CSR form
+     * @param start                 The starting vertex for research
+     * @param limit                 The number of transitions allowed between equivalence classes
+     * @param equivalenceRelation   An equivalence relation i.e. a binary relation that is reflexive, symmetric and transitive
+     * @param prev                  A HashMap associating a pair (V,k) to a pair (W,i) where W is a neighbor of V and i==k iff W and V are in the same equivalence classes
+     * @param dist                  A HashMap associating a pair (V,k) at its minimum distance from start
+     * @param <T>                   The type of vertices
+     */
+    public static <T> void shortestPath (CSRGraph<T> graph, T start, int limit, BiPredicate<T,T> equivalenceRelation,
+					 HashMap<Pair<T, Integer>, Pair<T, Integer>> prev, HashMap<Pair<T, Integer>, Double> dist) {
+	int nb = graph.nbVertex();
+	int levels = limit + 1;
 	prev.clear();
 	dist.clear();
+	int s = graph.id(start);
+	if( s == -1 ) {
+	    // the start is not in the graph: it is only at distance 0 of itself, every state of the graph can't be reached
+	    dist.put(new Pair<T, Integer>(start, 0), 0.0);
+	    for(int i=1; i <= limit; i++)
+		dist.put(new Pair<T, Integer>(start, i), Double.POSITIVE_INFINITY);
+	    for (int v = 0; v < nb; v++)
+		for(int i=0; i <= limit; i++)
+		    dist.put(new Pair<T, Integer>(graph.vertex(v), i), Double.POSITIVE_INFINITY);
+	    return;
+	}
+
+	int[] prevId = new int[nb * levels];
+	double[] distId = new double[nb * levels];
+	shortestPath(graph, s, limit, equivalenceRelation, prevId, distId, new IntPriorityQueue(nb * levels));
 
-	initShortestPath(graph, start, limit, dist, priQueue);
+	for (int v = 0; v < nb; v++) {
+	    T vertex = graph.vertex(v);
+	    for(int i=0; i <= limit; i++) {
+		int state = v * levels + i;
+		dist.put(new Pair<T, Integer>(vertex, i), distId[state]);
+		if( prevId[state] != -1 )
+		    prev.put(new Pair<T, Integer>(vertex, i), new Pair<T, Integer>(graph.vertex(prevId[state] / levels), prevId[state] % levels));
+	    }
+	}
+    }
+
+    /**
+     * Find the shortest path with a limit on the number of transitions between equivalence classes in a {@link CSRGraph},
+     * without allocating any object during the search.
+     * The state (V,k) is given the index id(V) * (limit+1) + k in the arrays.
+     * For every state, the best distance of the states of the same vertex at lower levels is kept up to date,
+     * so checking that a state is not beaten by a lower level costs a single comparison.
+     *
+     * @param graph                 A weighted and oriented graph in CSR form
+     * @param start                 The id of the starting vertex for research
+     * @param limit                 The number of transitions allowed between equivalence classes
+     * @param equivalenceRelation   An equivalence relation i.e. a binary relation that is reflexive, symmetric and transitive
+     * @param prev                  An array of length nbVertex * (limit+1) associating a state to its previous state (-1 if there is none)
+     * @param dist                  An array of length nbVertex * (limit+1) associating a state to its minimum distance from start
+     * @param priQueue              A queue whose capacity is at least nbVertex * (limit+1), it is cleared before being used
+     * @param <T>                   The type of vertices
+     */
+    public static <T> void shortestPath (CSRGraph<T> graph, int start, int limit, BiPredicate<T,T> equivalenceRelation,
+					 int[] prev, double[] dist, IntPriorityQueue priQueue) {
+	int levels = limit + 1;
+	int[] offsets = graph.getOffsets();
+	int[] targets = graph.getTargets();
+	double[] weights = graph.getWeights();
+	// below[(V,k)] is the minimum of dist[(V,i)] for i < k
+	double[] below = new double[dist.length];
+	Arrays.fill(dist, Double.POSITIVE_INFINITY);
+	Arrays.fill(below, Double.POSITIVE_INFINITY);
+	Arrays.fill(prev, -1);
+	priQueue.clear();
+
+	int s = start * levels;
+	dist[s] = 0.0;
+	for(int i=1; i < levels; i++)
+	    below[s + i] = 0.0;
+	priQueue.add(s, 0.0);
 
 	while ( !priQueue.isEmpty() ){
-	    Pair<T, Integer> node = priQueue.poll();
+	    int node = priQueue.poll();
+	    int u = node / levels;
+	    int level = node % levels;
+	    T vertex = graph.vertex(u);
 
-	    for ( T n : graph.neighbors(node.getObj()) ) {
-		int separation = node.getValue();
+	    for ( int e = offsets[u]; e < offsets[u+1]; e++ ) {
+		int n = targets[e];
+		int separation = level;
 
-		if( !equivalenceRelation.test(node.getObj(), n)) // on vérifie l'appartenance à la même classe d'équivalence entre le parent et le fils
+		if( !equivalenceRelation.test(vertex, graph.vertex(n)) )
 		    separation++;
 
 		if( separation > limit )
 		    continue;
 
-		double d = dist.get(node) + graph.weight(node.getObj(), n); // d = distance de node (parent) à n (fils) + distance de node à start
-
-		// on vérifie que des paires <n,i> avec 0 <= i < separation tel que dist[<n,i>] < d n'existe pas
-		boolean exist = false;
-		Pair<T, Integer> p;
-		for(int i=0; i < separation && !exist; i++) {
-		    p = new Pair<T, Integer>(n, i);
-		    if( dist.containsKey(p) && dist.get(p) < d )
-			exist = true;
-		}
+		double d = dist[node] + weights[e];
+		int child = n * levels + separation;
 
-		// ajout d'un nouveau noeud
-		Pair<T, Integer> child = new Pair<T, Integer>(n, separation);
-		if( !exist && dist.get(child) > d ) {
-		    dist.put(child, d);
-		    priQueue.updatePriority(child, d);
-		    prev.put(child, node);
+		if( below[child] >= d && dist[child] > d ) {
+		    dist[child] = d;
+		    if( !priQueue.updatePriority(child, d) )
+			priQueue.add(child, d);
+		    prev[child] = node;
+		    for(int i=separation+1; i < levels; i++) {
+			if( below[n * levels + i] > d )
+			    below[n * levels + i] = d;
+		    }
 		}
 	    }
 	}
@@ -0,0 +1,154 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A read-only weighted graph stored in compressed sparse row (CSR) form.
+ * Every vertex is interned to a dense integer id between 0 and {@link #nbVertex()} - 1.
+ * The outgoing edges of the vertex i are the indices e such that offsets[i] &lt;= e &lt; offsets[i+1],
+ * targets[e] is the id of the end of the edge and weights[e] its weight.
+ */
+public class CSRGraph<T> {
+
+  private final ArrayList<T> vertices;
+  private final HashMap<T, Integer> ids;
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;
+
+ /**
+  * Creates the CSR representation of a WGraph.
+  * Ids are given in the iteration order of {@link WGraph#getVertices()}.
+  * Later modifications of g are not reflected in the CSRGraph.
+  * @param g the graph to compress
+  */
+  public CSRGraph(WGraph<T> g) {
+    int n = g.nbVertex();
+    this.vertices = new ArrayList<T>(n);
+    this.ids = new HashMap<T, Integer>(2 * n);
+    for (T t : g.getVertices()) {
+      ids.put(t, vertices.size());
+      vertices.add(t);
+    }
+
+    this.offsets = new int[n + 1];
+    int m = 0;
+    for (int i = 0; i < n; i++) {
+      offsets[i] = m;
+      m += g.neighbors(vertices.get(i)).size();
+    }
+    offsets[n] = m;
+
+    this.targets = new int[m];
+    this.weights = new double[m];
+    for (int i = 0; i < n; i++) {
+      T t = vertices.get(i);
+      int e = offsets[i];
+      for (T s : g.neighbors(t)) {
+        targets[e] = ids.get(s);
+        weights[e] = g.weight(t, s);
+        e++;
+      }
+    }
+  }
+
+  private CSRGraph(ArrayList<T> vertices, HashMap<T, Integer> ids, int[] offsets, int[] targets, double[] weights) {
+    this.vertices = vertices;
+    this.ids = ids;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+ /**
+  * Returns the transpose of the graph: every edge is reversed and vertices keep the same ids.
+  * A search on the transpose from a vertex gives the distances from every vertex to it.
+  * @return the transpose of the graph
+  */
+  public CSRGraph<T> transpose() {
+    int n = nbVertex();
+    int m = nbEdge();
+    int[] tOffsets = new int[n + 1];
+    for (int e = 0; e < m; e++) tOffsets[targets[e] + 1]++;
+    for (int i = 0; i < n; i++) tOffsets[i + 1] += tOffsets[i];
+    int[] next = Arrays.copyOf(tOffsets, n);
+    int[] tTargets = new int[m];
+    double[] tWeights = new double[m];
+    for (int i = 0; i < n; i++) {
+      for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+        int f = next[targets[e]]++;
+        tTargets[f] = i;
+        tWeights[f] = weights[e];
+      }
+    }
+    return new CSRGraph<T>(vertices, ids, tOffsets, tTargets, tWeights);
+  }
+
+ /**
+  * Returns a graph with the same vertices and edges whose weights are read from another graph.
+  * The ids and the arrays of offsets and targets are shared with this graph, only the weights are read again,
+  * so the weights of two versions of a graph can be compared edge by edge.
+  * @param g a graph with the same edges as this one, for example a view over the graph this one was built from
+  * @return a graph with the structure of this one and the weights of g
+  */
+  public CSRGraph<T> reweight(WGraph<T> g) {
+    double[] w = new double[nbEdge()];
+    for (int i = 0; i < nbVertex(); i++) {
+      for (int e = offsets[i]; e < offsets[i + 1]; e++) w[e] = g.weight(vertices.get(i), vertices.get(targets[e]));
+    }
+    return new CSRGraph<T>(vertices, ids, offsets, targets, w);
+  }
+
+ /**
+  * Returns the number of vertices of the graph
+  * @return the number of vertices of the graph
+  */
+  public int nbVertex() {return vertices.size();}
+
+ /**
+  * Returns the number of edges of the graph
+  * @return the number of edges of the graph
+  */
+  public int nbEdge() {return targets.length;}
+
+ /**
+  * Returns the id of a vertex
+  * @param v the vertex we want the id
+  * @return the id of v or -1 if v is not in the graph
+  */
+  public int id(T v) {
+    Integer i = ids.get(v);
+    return (i == null) ? -1 : i;
+  }
+
+ /**
+  * Returns the vertex associated to an id
+  * @param id the id of the vertex
+  * @return the vertex whose id is id
+  */
+  public T vertex(int id) {return vertices.get(id);}
+
+ /**
+  * Returns the array of offsets, the edges of vertex i are between offsets[i] (inclusive) and offsets[i+1] (exclusive).
+  * The array must not be modified.
+  * @return the array of offsets, of length {@link #nbVertex()} + 1
+  */
+  public int[] getOffsets() {return offsets;}
+
+ /**
+  * Returns the array containing the end of every edge.
+  * The array must not be modified.
+  * @return the array of the ends of the edges
+  */
+  public int[] getTargets() {return targets;}
+
+ /**
+  * Returns the array containing the weight of every edge.
+  * The array must not be modified.
+  * @return the array of the weights of the edges
+  */
+  public double[] getWeights() {return weights;}
+
+}
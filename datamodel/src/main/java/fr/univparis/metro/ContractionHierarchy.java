@@ -0,0 +1,384 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A contraction hierarchy of a weighted graph.
+ * The vertices are contracted one after the other (the least important first): contracting a vertex v removes it from the graph
+ * and adds a shortcut u -&gt; w of weight d(u, v) + d(v, w) for every path u -&gt; v -&gt; w which is the only shortest path between u and w.
+ * A query is then a bidirectional search that only goes up in the hierarchy, it settles a few dozens of vertices whatever the size of the graph.
+ * Every shortcut remembers the vertex it skips, so that the paths can be unpacked into the vertices of the original graph.
+ * Later modifications of the graph are not reflected in the hierarchy.
+ */
+public class ContractionHierarchy<T> {
+
+ /**
+  * The maximum number of vertices settled by a witness search during the preprocessing
+  */
+  private static final int WITNESS_LIMIT = 500;
+
+  private final CSRGraph<T> graph;
+  private final int[] rank;
+  // the edges u -> w with rank[u] < rank[w], indexed by u
+  private final int[] upOffsets;
+  private final int[] upTargets;
+  private final double[] upWeights;
+  // the edges u -> w with rank[u] > rank[w], indexed by w
+  private final int[] downOffsets;
+  private final int[] downSources;
+  private final double[] downWeights;
+  // the weight and the skipped vertex (-1 for an edge of the original graph) of every edge of the hierarchy
+  private final ArrayList<HashMap<Integer, Double>> edges;
+  private final HashMap<Long, Integer> middle;
+  // the workspaces of the queries which are not running, a query takes one or creates it
+  private final ConcurrentLinkedQueue<Query> queries = new ConcurrentLinkedQueue<Query>();
+
+ /**
+  * Builds the contraction hierarchy of a graph.
+  * The edges of infinite weight are ignored.
+  * @param g the graph we want to preprocess
+  */
+  public ContractionHierarchy(WGraph<T> g) {
+    this.graph = new CSRGraph<T>(g);
+    int n = graph.nbVertex();
+    this.edges = new ArrayList<HashMap<Integer, Double>>(n);
+    ArrayList<HashMap<Integer, Double>> in = new ArrayList<HashMap<Integer, Double>>(n);
+    for (int i = 0; i < n; i++) {
+      edges.add(new HashMap<Integer, Double>());
+      in.add(new HashMap<Integer, Double>());
+    }
+    int[] offsets = graph.getOffsets();
+    int[] targets = graph.getTargets();
+    double[] weights = graph.getWeights();
+    for (int u = 0; u < n; u++) {
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+        if (weights[e] == Double.POSITIVE_INFINITY) continue;
+        edges.get(u).put(targets[e], weights[e]);
+        in.get(targets[e]).put(u, weights[e]);
+      }
+    }
+    this.middle = new HashMap<Long, Integer>();
+    this.rank = new int[n];
+
+    Contraction c = new Contraction(n, in);
+    IntPriorityQueue order = new IntPriorityQueue(n);
+    for (int v = 0; v < n; v++) order.add(v, c.priority(v));
+    int r = 0;
+    while (! order.isEmpty()) {
+      int v = order.poll();
+      // lazy update: the priority of v may have increased since it was computed
+      double p = c.priority(v);
+      if (p > order.peekKey()) {
+        order.add(v, p);
+        continue;
+      }
+      c.contract(v);
+      rank[v] = r++;
+    }
+
+    int[] upCount = new int[n + 1];
+    int[] downCount = new int[n + 1];
+    for (int u = 0; u < n; u++) {
+      for (int w : edges.get(u).keySet()) {
+        if (rank[u] < rank[w]) upCount[u + 1]++;
+        else downCount[w + 1]++;
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      upCount[i + 1] += upCount[i];
+      downCount[i + 1] += downCount[i];
+    }
+    this.upOffsets = upCount;
+    this.downOffsets = downCount;
+    this.upTargets = new int[upOffsets[n]];
+    this.upWeights = new double[upOffsets[n]];
+    this.downSources = new int[downOffsets[n]];
+    this.downWeights = new double[downOffsets[n]];
+    int[] upNext = Arrays.copyOf(upOffsets, n);
+    int[] downNext = Arrays.copyOf(downOffsets, n);
+    for (int u = 0; u < n; u++) {
+      for (HashMap.Entry<Integer, Double> e : edges.get(u).entrySet()) {
+        int w = e.getKey();
+        if (rank[u] < rank[w]) {
+          upTargets[upNext[u]] = w;
+          upWeights[upNext[u]++] = e.getValue();
+        }
+        else {
+          downSources[downNext[w]] = u;
+          downWeights[downNext[w]++] = e.getValue();
+        }
+      }
+    }
+  }
+
+  private static long key(int u, int w, int n) {return (long) u * n + w;}
+
+ /**
+  * The state of the graph during the contraction: the remaining vertices and a workspace for the witness searches
+  */
+  private class Contraction {
+    private final int n;
+    private final ArrayList<HashMap<Integer, Double>> in;
+    private final boolean[] contracted;
+    private final int[] contractedNeighbors;
+    private final double[] dist;
+    private final int[] touched;
+    private int nbTouched;
+    private final IntPriorityQueue queue;
+
+    Contraction(int n, ArrayList<HashMap<Integer, Double>> in) {
+      this.n = n;
+      this.in = in;
+      this.contracted = new boolean[n];
+      this.contractedNeighbors = new int[n];
+      this.dist = new double[n];
+      Arrays.fill(dist, Double.POSITIVE_INFINITY);
+      this.touched = new int[n];
+      this.queue = new IntPriorityQueue(n);
+    }
+
+   /**
+    * Returns the priority of a vertex: the less important vertices have the lowest priority
+    */
+    double priority(int v) {
+      int shortcuts = contract(v, false);
+      int removed = 0;
+      for (int u : in.get(v).keySet()) if (! contracted[u]) removed++;
+      for (int w : edges.get(v).keySet()) if (! contracted[w]) removed++;
+      return shortcuts - removed + contractedNeighbors[v];
+    }
+
+    void contract(int v) {
+      contract(v, true);
+      contracted[v] = true;
+      for (int u : in.get(v).keySet()) contractedNeighbors[u]++;
+      for (int w : edges.get(v).keySet()) contractedNeighbors[w]++;
+    }
+
+   /**
+    * Computes the shortcuts needed to contract v, and adds them if add is true
+    * @return the number of shortcuts needed
+    */
+    private int contract(int v, boolean add) {
+      int res = 0;
+      double maxOut = 0.;
+      for (HashMap.Entry<Integer, Double> e : edges.get(v).entrySet())
+        if (! contracted[e.getKey()] && e.getValue() > maxOut) maxOut = e.getValue();
+      // copy of the in-edges since adding shortcuts modify the maps
+      ArrayList<HashMap.Entry<Integer, Double>> ins = new ArrayList<HashMap.Entry<Integer, Double>>(in.get(v).entrySet());
+      ArrayList<HashMap.Entry<Integer, Double>> outs = new ArrayList<HashMap.Entry<Integer, Double>>(edges.get(v).entrySet());
+      for (HashMap.Entry<Integer, Double> ei : ins) {
+        int u = ei.getKey();
+        if (contracted[u]) continue;
+        witnessSearch(u, v, ei.getValue() + maxOut);
+        for (HashMap.Entry<Integer, Double> eo : outs) {
+          int w = eo.getKey();
+          if (contracted[w] || w == u) continue;
+          double d = ei.getValue() + eo.getValue();
+          if (dist[w] <= d) continue;
+          res++;
+          if (add) {
+            edges.get(u).put(w, d);
+            in.get(w).put(u, d);
+            middle.put(key(u, w, n), v);
+          }
+        }
+        reset();
+      }
+      return res;
+    }
+
+   /**
+    * Dijkstra from u in the remaining graph without v, stopped after max or after {@link #WITNESS_LIMIT} settled vertices
+    */
+    private void witnessSearch(int u, int v, double max) {
+      queue.clear();
+      dist[u] = 0.;
+      touched[nbTouched++] = u;
+      queue.add(u, 0.);
+      int settled = 0;
+      while (! queue.isEmpty() && queue.peekKey() <= max && settled < WITNESS_LIMIT) {
+        int x = queue.poll();
+        settled++;
+        for (HashMap.Entry<Integer, Double> e : edges.get(x).entrySet()) {
+          int y = e.getKey();
+          if (y == v || contracted[y]) continue;
+          double d = dist[x] + e.getValue();
+          if (d < dist[y]) {
+            if (dist[y] == Double.POSITIVE_INFINITY) touched[nbTouched++] = y;
+            dist[y] = d;
+            if (! queue.updatePriority(y, d)) queue.add(y, d);
+          }
+        }
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < nbTouched; i++) dist[touched[i]] = Double.POSITIVE_INFINITY;
+      nbTouched = 0;
+    }
+  }
+
+ /**
+  * Returns the number of shortcuts added by the contraction
+  * @return the number of shortcuts added by the contraction
+  */
+  public int nbShortcuts() {return middle.size();}
+
+ /**
+  * Used to find the shortest path between a starting T and a target T of the graph.
+  * It has the same result as {@link Dijkstra#shortestPath(WGraph, Object, Object, HashMap, HashMap)} on the preprocessed graph,
+  * but prev and dist are only filled for the vertices of the shortest path (and dist contains target with positive infinity if there is no path).
+  * @param s      T where we begin our path
+  * @param target T where we want to go
+  * @param prev   HashMap where for each T of the shortest path is associate the previous T
+  * @param dist   HashMap where for each T of the shortest path is associate his distance to s
+  * @return the distance between s and target, positive infinity if there is no path
+  */
+  public double shortestPath(T s, T target, HashMap<T, T> prev, HashMap<T, Double> dist) {
+    prev.clear();
+    dist.clear();
+    LinkedList<Integer> path = path(graph.id(s), graph.id(target));
+    if (path == null) {
+      dist.put(target, Double.POSITIVE_INFINITY);
+      return Double.POSITIVE_INFINITY;
+    }
+    int last = path.getFirst();
+    double d = 0.;
+    dist.put(graph.vertex(last), d);
+    for (int v : path) {
+      if (v == last) continue;
+      d += edges.get(last).get(v);
+      prev.put(graph.vertex(v), graph.vertex(last));
+      dist.put(graph.vertex(v), d);
+      last = v;
+    }
+    return d;
+  }
+
+ /**
+  * Returns the shortest path between two vertices as a list of ids of the original graph
+  */
+  private LinkedList<Integer> path(int s, int t) {
+    if (s == -1 || t == -1) return null;
+    Query q = queries.poll();
+    if (q == null) q = new Query(graph.nbVertex());
+    try {
+      return q.path(s, t);
+    } finally {
+      q.reset();
+      queries.offer(q);
+    }
+  }
+
+ /**
+  * The arrays and the queues of a query, reused by the next queries: only the vertices touched by a query are reset after it,
+  * so a query costs the size of its search space instead of the size of the graph
+  */
+  private class Query {
+    private final double[] distF;
+    private final double[] distB;
+    private final int[] prevF;
+    private final int[] prevB;
+    private final IntPriorityQueue queueF;
+    private final IntPriorityQueue queueB;
+    // the vertices whose distance has been set, in one direction or both
+    private final int[] touched;
+    private int nbTouched;
+
+    Query(int n) {
+      this.distF = new double[n];
+      this.distB = new double[n];
+      this.prevF = new int[n];
+      this.prevB = new int[n];
+      Arrays.fill(distF, Double.POSITIVE_INFINITY);
+      Arrays.fill(distB, Double.POSITIVE_INFINITY);
+      this.queueF = new IntPriorityQueue(n);
+      this.queueB = new IntPriorityQueue(n);
+      this.touched = new int[2 * n];
+    }
+
+    void reset() {
+      for (int i = 0; i < nbTouched; i++) {
+        distF[touched[i]] = Double.POSITIVE_INFINITY;
+        distB[touched[i]] = Double.POSITIVE_INFINITY;
+      }
+      nbTouched = 0;
+      queueF.clear();
+      queueB.clear();
+    }
+
+    LinkedList<Integer> path(int s, int t) {
+      distF[s] = 0.;
+      distB[t] = 0.;
+      touched[nbTouched++] = s;
+      touched[nbTouched++] = t;
+      prevF[s] = -1;
+      prevB[t] = -1;
+      queueF.add(s, 0.);
+      queueB.add(t, 0.);
+
+      double best = Double.POSITIVE_INFINITY;
+      int meeting = -1;
+      boolean forward = true;
+      while (queueF.peekKey() < best || queueB.peekKey() < best) {
+        if (forward ? queueF.peekKey() >= best : queueB.peekKey() >= best) forward = ! forward;
+        IntPriorityQueue queue = forward ? queueF : queueB;
+        double[] dist = forward ? distF : distB;
+        double[] other = forward ? distB : distF;
+        int[] prev = forward ? prevF : prevB;
+        int[] offsets = forward ? upOffsets : downOffsets;
+        int[] ends = forward ? upTargets : downSources;
+        double[] weights = forward ? upWeights : downWeights;
+
+        int u = queue.poll();
+        if (dist[u] + other[u] < best) {
+          best = dist[u] + other[u];
+          meeting = u;
+        }
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int v = ends[e];
+          double d = dist[u] + weights[e];
+          if (d < dist[v]) {
+            if (dist[v] == Double.POSITIVE_INFINITY) touched[nbTouched++] = v;
+            dist[v] = d;
+            prev[v] = u;
+            if (! queue.updatePriority(v, d)) queue.add(v, d);
+          }
+        }
+        forward = ! forward;
+      }
+      if (meeting == -1) return null;
+
+      LinkedList<Integer> res = new LinkedList<Integer>();
+      res.add(meeting);
+      for (int v = meeting; prevF[v] != -1; v = prevF[v]) unpack(prevF[v], v, res, true);
+      for (int v = meeting; prevB[v] != -1; v = prevB[v]) unpack(v, prevB[v], res, false);
+      return res;
+    }
+  }
+
+ /**
+  * Adds to path the vertices of the original graph between u and w (excluded) and u (if first) or w (if not first)
+  */
+  private void unpack(int u, int w, LinkedList<Integer> path, boolean first) {
+    Integer m = middle.get(key(u, w, graph.nbVertex()));
+    if (m == null) {
+      if (first) path.addFirst(u);
+      else path.addLast(w);
+    }
+    else if (first) {
+      unpack(m, w, path, true);
+      unpack(u, m, path, true);
+    }
+    else {
+      unpack(u, m, path, false);
+      unpack(m, w, path, false);
+    }
+  }
+
+}
@@ -53,4 +53,125 @@ public class Dijkstra {
       }
     }
 
+    /**
+    * Used to find the shortest path between a starting T and a target T of a graph.
+    * Vertices enter the queue only when they are reached for the first time and the search stops as soon as target is settled,
+    * so only the vertices closer to s than target are explored.
+    * dist and prev are only filled for the explored vertices, dist contains target with positive infinity if there is no path.
+    * @param g      Graph of T where we search a shortest path
+    * @param s      T where we begin our path
+    * @param target T where we want to go
+    * @param prev   HashMap where for each explored T is associate the previous T for the shortest path since s
+    * @param dist   HashMap where for each explored T is associate his distance to s
+    * @param <T> the type of the vertex
+    */
+    public static <T> void shortestPath (WGraph<T> g, T s, T target, HashMap<T, T> prev, HashMap<T, Double> dist) {
+      PriorityQueue<T> priQueue = new PriorityQueue<T>();
+      dist.clear();
+      prev.clear();
+      if (g.containsVertex(s)) {
+        dist.put(s, 0.);
+        priQueue.add(s, 0.);
+      }
+
+      while (!priQueue.isEmpty()){
+        T u = priQueue.poll();
+        if (u.equals(target)) break;
+        Double du = dist.get(u);
+        for (T st : g.neighbors(u)) {
+          Double d = du + g.weight(u, st);
+          Double old = dist.get(st);
+          if (old == null ? d < Double.POSITIVE_INFINITY : old > d){
+            dist.put(st, d);
+            if (!priQueue.updatePriority(st, d)) priQueue.add(st, d);
+            prev.put(st, u);
+          }
+        }
+      }
+      if (!dist.containsKey(target)) dist.put(target, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+    * Used to find the shortest path between a starting vertex and a target vertex of a {@link CSRGraph}.
+    * It behaves as {@link #shortestPath(WGraph, Object, Object, HashMap, HashMap)}: the search stops when target is settled.
+    * @param g      Graph where we search a shortest path
+    * @param s      id of the vertex where we begin our path
+    * @param target id of the vertex where we want to go
+    * @param prev   array where for each vertex id is associated the id of the previous vertex for the shortest path since s (-1 if there is none)
+    * @param dist   array where for each vertex id is associated his distance to s, only exact for the settled vertices
+    * @param priQueue a queue whose capacity is at least the number of vertices of g, it is cleared before being used
+    * @param <T> the type of the vertex
+    * @return the distance between s and target, positive infinity if there is no path
+    */
+    public static <T> double shortestPath (CSRGraph<T> g, int s, int target, int[] prev, double[] dist, IntPriorityQueue priQueue) {
+      int[] offsets = g.getOffsets();
+      int[] targets = g.getTargets();
+      double[] weights = g.getWeights();
+      priQueue.clear();
+      Arrays.fill(dist, Double.POSITIVE_INFINITY);
+      Arrays.fill(prev, -1);
+      dist[s] = 0.;
+      priQueue.add(s, 0.);
+
+      while (!priQueue.isEmpty()){
+        int u = priQueue.poll();
+        if (u == target) break;
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int v = targets[e];
+          double d = dist[u] + weights[e];
+          if (dist[v] > d){
+            dist[v] = d;
+            if (!priQueue.updatePriority(v, d)) priQueue.add(v, d);
+            prev[v] = u;
+          }
+        }
+      }
+      return dist[target];
+    }
+
+    /**
+    * Used to find the shortest path between a starting vertex and all other vertices of a {@link CSRGraph}
+    * @param g    Graph where we search a shortest path
+    * @param s    id of the vertex where we begin our path
+    * @param prev array where for each vertex id is associated the id of the previous vertex for the shortest path since s (-1 if there is none)
+    * @param dist array where for each vertex id is associated his distance to s with the shortest path to s
+    * @param <T> the type of the vertex
+    */
+    public static <T> void shortestPath (CSRGraph<T> g, int s, int[] prev, double[] dist) {
+      shortestPath(g, s, prev, dist, new IntPriorityQueue(g.nbVertex()));
+    }
+
+    /**
+    * Used to find the shortest path between a starting vertex and all other vertices of a {@link CSRGraph}, reusing a priority queue
+    * @param g    Graph where we search a shortest path
+    * @param s    id of the vertex where we begin our path
+    * @param prev array where for each vertex id is associated the id of the previous vertex for the shortest path since s (-1 if there is none)
+    * @param dist array where for each vertex id is associated his distance to s with the shortest path to s
+    * @param priQueue a queue whose capacity is at least the number of vertices of g, it is cleared before being used
+    * @param <T> the type of the vertex
+    */
+    public static <T> void shortestPath (CSRGraph<T> g, int s, int[] prev, double[] dist, IntPriorityQueue priQueue) {
+      int[] offsets = g.getOffsets();
+      int[] targets = g.getTargets();
+      double[] weights = g.getWeights();
+      priQueue.clear();
+      Arrays.fill(dist, Double.POSITIVE_INFINITY);
+      Arrays.fill(prev, -1);
+      dist[s] = 0.;
+      priQueue.add(s, 0.);
+
+      while (!priQueue.isEmpty()){
+        int u = priQueue.poll();
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int v = targets[e];
+          double d = dist[u] + weights[e];
+          if (dist[v] > d){
+            dist[v] = d;
+            if (!priQueue.updatePriority(v, d)) priQueue.add(v, d);
+            prev[v] = u;
+          }
+        }
+      }
+    }
+
 }
@@ -0,0 +1,80 @@
+package fr.univparis.metro;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores, for every city, the matrices computed by Floyd's algorithm in {@link LimitedConnectionSearch}.
+ * The matrices of a city are computed again only when its trafics have changed (see {@link Trafics#getVersion(String)}),
+ * so that every itinerary request in between only has to read them.
+ */
+public class FloydCache {
+
+  // The matrices of a city and the version of the trafics they were computed for, an entry is never modified
+  private static class Entry {
+    private final long version;
+    private final MatriceWGraph matrices;
+
+    private Entry(long version, MatriceWGraph matrices) {
+      this.version = version;
+      this.matrices = matrices;
+    }
+  }
+
+  // the entries are read without any lock, they are computed with the lock of their city
+  private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+ /**
+  * Return the matrices of the actual trafics of a city on which Floyd's algorithm has been executed.
+  * The returned MatriceWGraph is shared and must not be modified.
+  * Only the requests of a city whose matrices are out of date wait for them, the other cities are not blocked.
+  * @param city the city which we want the matrices
+  * @return the matrices of the actual trafics of the city
+  */
+  public static MatriceWGraph get(String city) {
+    // the version is read before the graph: if they don't match, the graph is newer and the matrices will be computed again with the next version
+    long version = Trafics.getVersion(city);
+    Entry e = entries.get(city);
+    if (e != null && e.version >= version) return e.matrices;
+    synchronized (lock(city)) {
+      e = entries.get(city);
+      if (e == null || e.version < version) {
+        e = new Entry(version, compute(Trafics.getGraph(city)));
+        entries.put(city, e);
+      }
+      return e.matrices;
+    }
+  }
+
+ /**
+  * Forget the matrices of a city
+  * @param city the city which is unloaded
+  */
+  public static void evict(String city) {
+    synchronized (lock(city)) {
+      entries.remove(city);
+    }
+  }
+
+  private static Object lock(String city) {
+    return locks.computeIfAbsent(city, c -> new Object());
+  }
+
+ /**
+  * Build the matrices of a graph and execute Floyd's algorithm on them
+  * @param g the graph of the whole subway network
+  * @return the matrices of g on which Floyd's algorithm has been executed
+  */
+  public static MatriceWGraph compute(WGraph<Station> g) {
+    HashMap<String, MatriceWGraph> lines = MatriceWGraph.initializeAllLineGraphs(g);
+    MatriceWGraph m = new MatriceWGraph(g, lines);
+    double[] direct = m.getFlatDirect();
+    int[] via = m.getFlatVia();
+    int[] intermediate = m.getFlatIntermediate();
+    LimitedConnectionSearch.parallelFloyd(direct, via, intermediate, m.getDirect().length);
+    m.setFlatMatrices(direct, via, intermediate);
+    return m;
+  }
+
+}
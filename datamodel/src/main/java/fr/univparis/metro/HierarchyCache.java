@@ -0,0 +1,62 @@
+package fr.univparis.metro;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores, for every city, the {@link ContractionHierarchy} of its original subway graph.
+ * A hierarchy is only valid for the weights it was built with, so it is only returned when the city has no perturbation:
+ * otherwise the itineraries must be searched on the actual graph.
+ */
+public class HierarchyCache {
+
+  // The hierarchy of the initial graph of a city, an entry is never modified
+  private static class Entry {
+    private final WGraph<Station> initial;
+    private final ContractionHierarchy<Station> hierarchy;
+
+    private Entry(WGraph<Station> initial, ContractionHierarchy<Station> hierarchy) {
+      this.initial = initial;
+      this.hierarchy = hierarchy;
+    }
+  }
+
+  // the entries are read without any lock, they are built with the lock of their city
+  private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+ /**
+  * Return the contraction hierarchy of a city if there is no perturbation in it.
+  * Only the requests of a city whose hierarchy is being built wait for it, the other cities are not blocked.
+  * @param city the city which we want the hierarchy
+  * @return the contraction hierarchy of the original graph of the city, or null if a perturbation is active in the city
+  */
+  public static ContractionHierarchy<Station> get(String city) {
+    WGraph<Station> initial = Trafics.getInitialGraph(city);
+    Entry e = entries.get(city);
+    if (e == null || e.initial != initial) {
+      synchronized (lock(city)) {
+        e = entries.get(city);
+        if (e == null || e.initial != initial) {
+          e = new Entry(initial, new ContractionHierarchy<Station>(initial));
+          entries.put(city, e);
+        }
+      }
+    }
+    return Trafics.getPerturbation(city).isEmpty() ? e.hierarchy : null;
+  }
+
+ /**
+  * Forget the hierarchy of a city
+  * @param city the city which is unloaded
+  */
+  public static void evict(String city) {
+    synchronized (lock(city)) {
+      entries.remove(city);
+    }
+  }
+
+  private static Object lock(String city) {
+    return locks.computeIfAbsent(city, c -> new Object());
+  }
+
+}
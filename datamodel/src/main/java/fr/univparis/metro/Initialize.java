@@ -86,7 +86,7 @@ public class Initialize{
         Station to = whereTo(g);
         HashMap<Station, Station> prev = new HashMap<Station, Station>();
         HashMap<Station, Double> dist = new HashMap<Station, Double>();
-        Dijkstra.shortestPath(g, from, prev, dist);
+        Dijkstra.shortestPath(g, from, to, prev, dist);
         LinkedList<Station> path = new LinkedList<Station>();
         Double travelTime = dist.get(to);
         Double seconds = travelTime % 60;
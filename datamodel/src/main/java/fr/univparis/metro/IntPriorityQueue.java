@@ -0,0 +1,189 @@
+package fr.univparis.metro;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of integers between 0 and a fixed capacity, where every element is linked with a weight to order them.
+ * It is an indexed 4-ary heap: keys and positions are stored in primitive arrays indexed by the element,
+ * so no object is allocated once the queue has been created and it can be reused for several searches thanks to {@link #clear()}.
+ * It has the same contract as {@link PriorityQueue}.
+ */
+public class IntPriorityQueue {
+
+  private static final int ARITY = 4;
+
+  private final int[] heap;
+  private final int[] position;
+  private final double[] keys;
+  private int size;
+
+ /**
+  * Creates an empty IntPriorityQueue that can contain the integers between 0 and capacity - 1
+  * @param capacity the number of elements that can be in the queue
+  */
+  public IntPriorityQueue(int capacity) {
+    heap = new int[capacity];
+    position = new int[capacity];
+    keys = new double[capacity];
+    Arrays.fill(position, -1);
+    size = 0;
+  }
+
+ /**
+  * Returns the number of elements that can be in the queue
+  * @return the number of elements that can be in the queue
+  */
+  public int capacity() {return heap.length;}
+
+ /**
+  * Returns true if this priority queue contains no elements.
+  * @return true if this priority queue contains no elements
+  */
+  public boolean isEmpty() {return size == 0;}
+
+ /**
+  * Returns the number of elements in this priority queue.
+  * @return the number of elements in this priority queue
+  */
+  public int size() {return size;}
+
+ /**
+  * Removes all the elements of this queue, in a time proportional to the number of elements in it.
+  */
+  public void clear() {
+    for (int i = 0; i < size; i++) position[heap[i]] = -1;
+    size = 0;
+  }
+
+ /**
+  * Inserts the specified element into this priority queue given a key (priority).
+  * @param val the element to add, between 0 and {@link #capacity()} - 1
+  * @param key the priority of val
+  * @return true if the element has been added
+  */
+  public boolean add(int val, double key) {
+    if (val < 0 || val >= heap.length || position[val] != -1)
+      return false;
+    keys[val] = key;
+    heap[size] = val;
+    position[val] = size;
+    size++;
+    siftUp(size - 1);
+    return true;
+  }
+
+ /**
+  * Returns the head of this queue without removing it, or -1 if this queue is empty.
+  * @return the head of this queue, or -1 if this queue is empty
+  */
+  public int peek() {
+    return (size == 0) ? -1 : heap[0];
+  }
+
+ /**
+  * Returns the priority of the head of this queue, or positive infinity if this queue is empty.
+  * @return the priority of the head of this queue, or positive infinity if this queue is empty
+  */
+  public double peekKey() {
+    return (size == 0) ? Double.POSITIVE_INFINITY : keys[heap[0]];
+  }
+
+ /**
+  * Retrieves and removes the head of this queue, or returns -1 if this queue is empty.
+  * @return the head of this queue, or -1 if this queue is empty
+  */
+  public int poll() {
+    if (size == 0)
+      return -1;
+    int root = heap[0];
+    removeAt(0);
+    return root;
+  }
+
+ /**
+  * Update the priority of element val with key. The new key must be lesser than the old key
+  * @param val the element for which we want to update its priority
+  * @param key the new key lesser than the previous key associated to val
+  * @return true if the priority was successfully updated
+  */
+  public boolean updatePriority(int val, double key) {
+    if (! contains(val) || key >= keys[val])
+      return false;
+    keys[val] = key;
+    siftUp(position[val]);
+    return true;
+  }
+
+ /**
+  * Returns true if this queue contains the specified element.
+  * @param val element to be checked for containment in this queue
+  * @return true if this queue contains the specified element
+  */
+  public boolean contains(int val) {
+    return val >= 0 && val < heap.length && position[val] != -1;
+  }
+
+ /**
+  * Removes the specified element from this queue, if it is present.
+  * @param val the element to be removed from this queue, if present
+  * @return true if this queue changed as a result of the call
+  */
+  public boolean remove(int val) {
+    if (! contains(val))
+      return false;
+    removeAt(position[val]);
+    return true;
+  }
+
+  private void removeAt(int i) {
+    int removed = heap[i];
+    size--;
+    position[removed] = -1;
+    if (i == size) return;
+    int last = heap[size];
+    heap[i] = last;
+    position[last] = i;
+    if (i > 0 && keys[last] < keys[heap[(i - 1) / ARITY]]) siftUp(i);
+    else siftDown(i);
+  }
+
+ /**
+  * Move node i up in the tree, as long as needed; used to restore heap condition after insertion.
+  */
+  private void siftUp(int i) {
+    int val = heap[i];
+    double key = keys[val];
+    while (i > 0) {
+      int parent = (i - 1) / ARITY;
+      if (keys[heap[parent]] <= key) break;
+      heap[i] = heap[parent];
+      position[heap[i]] = i;
+      i = parent;
+    }
+    heap[i] = val;
+    position[val] = i;
+  }
+
+ /**
+  * Move node i down in the tree; used to restore heap condition after deletion
+  */
+  private void siftDown(int i) {
+    int val = heap[i];
+    double key = keys[val];
+    while (true) {
+      int first = ARITY * i + 1;
+      if (first >= size) break;
+      int last = Math.min(first + ARITY, size);
+      int win = first;
+      for (int c = first + 1; c < last; c++) {
+        if (keys[heap[c]] < keys[heap[win]]) win = c;
+      }
+      if (keys[heap[win]] >= key) break;
+      heap[i] = heap[win];
+      position[heap[i]] = i;
+      i = win;
+    }
+    heap[i] = val;
+    position[val] = i;
+  }
+}
@@ -0,0 +1,227 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * Functional class where Yen's algorithm is implemented: it gives the k shortest loopless paths between two vertices, by increasing cost.
+ * Every new path deviates from a previous one at a spur vertex, and the rest of it is found by a search from that vertex.
+ * The first path is given by the contraction hierarchy of the graph if there is one, by a point-to-point search otherwise, and bounds the cost of the others.
+ * Then a backward search from the target, bounded by that cost (and pruned by the landmarks if there are some), gives the distance to the target
+ * of the vertices which may be on one of the paths: they are an exact heuristic for the A* searches of the spur paths,
+ * which stays valid since a spur search only removes edges, and a deviation which can't be under the maximum cost is discarded without any search.
+ * Correspondances are counted as in {@link ParetoSearch}: every edge between two vertices that are not equivalent is one correspondance.
+ */
+public class KShortestPaths {
+
+ /**
+  * At most MAX_ROUNDS_FACTOR * k paths are accepted by a search for k paths, counting the ones with too many correspondances,
+  * so that a search where most of the cheap paths have too many correspondances stops instead of enumerating all of them.
+  */
+  public static final int MAX_ROUNDS_FACTOR = 10;
+
+ /**
+  * Returns the k shortest loopless paths between two vertices
+  * @param g the graph, it is not modified
+  * @param s the start of the paths
+  * @param t the end of the paths
+  * @param k the maximum number of paths
+  * @param <T> the type of the vertex
+  * @return the paths with their cost, by increasing cost, empty if there is no path
+  */
+  public static <T> ArrayList<Pair<LinkedList<T>, Double>> paths(WGraph<T> g, T s, T t, int k) {
+    return paths(g, null, null, s, t, k, Double.POSITIVE_INFINITY, (u, v) -> true, Integer.MAX_VALUE);
+  }
+
+ /**
+  * Returns the k shortest loopless paths between two vertices whose cost and number of correspondances are bounded.
+  * The shortest path is always returned, the other ones only if they have at most maxTransfers correspondances,
+  * and fewer than k paths may be returned once {@link #MAX_ROUNDS_FACTOR} * k paths have been looked at.
+  * @param g the graph, it is not modified
+  * @param s the start of the paths
+  * @param t the end of the paths
+  * @param k the maximum number of paths
+  * @param threshold the paths costing more than threshold times the cost of the shortest path are ignored
+  * @param sameLine tells whether two vertices are equivalent (an edge between them isn't a correspondance)
+  * @param maxTransfers the maximum number of correspondances of the paths but the shortest one
+  * @param <T> the type of the vertex
+  * @return the paths with their cost, by increasing cost, empty if there is no path
+  */
+  public static <T> ArrayList<Pair<LinkedList<T>, Double>> paths(WGraph<T> g, T s, T t, int k, double threshold, BiPredicate<T, T> sameLine, int maxTransfers) {
+    return paths(g, null, null, s, t, k, threshold, sameLine, maxTransfers);
+  }
+
+ /**
+  * Returns the k shortest loopless paths between two vertices whose cost and number of correspondances are bounded,
+  * using the preprocessings of the graph to speed up the searches.
+  * The shortest path is always returned, the other ones only if they have at most maxTransfers correspondances,
+  * and fewer than k paths may be returned once {@link #MAX_ROUNDS_FACTOR} * k paths have been looked at.
+  * @param g the graph, it is not modified
+  * @param hierarchy the contraction hierarchy of g (built with the same weights), or null
+  * @param landmarks the landmarks valid for g (see {@link Landmarks#isLowerBoundOf(WGraph)}), or null to use Dijkstra
+  * @param s the start of the paths
+  * @param t the end of the paths
+  * @param k the maximum number of paths
+  * @param threshold the paths costing more than threshold times the cost of the shortest path are ignored
+  * @param sameLine tells whether two vertices are equivalent (an edge between them isn't a correspondance)
+  * @param maxTransfers the maximum number of correspondances of the paths but the shortest one
+  * @param <T> the type of the vertex
+  * @return the paths with their cost, by increasing cost, empty if there is no path
+  */
+  public static <T> ArrayList<Pair<LinkedList<T>, Double>> paths(WGraph<T> g, ContractionHierarchy<T> hierarchy, Landmarks<T> landmarks, T s, T t, int k,
+                                                                 double threshold, BiPredicate<T, T> sameLine, int maxTransfers) {
+    ArrayList<Pair<LinkedList<T>, Double>> res = new ArrayList<Pair<LinkedList<T>, Double>>();
+    if (k <= 0 || ! g.containsVertex(s) || ! g.containsVertex(t)) return res;
+    ArrayList<T> first = firstPath(g, hierarchy, landmarks, s, t);
+    if (first == null) return res;
+    double firstCost = cost(g, first);
+    double maxCost = threshold * firstCost;
+    HashMap<T, Double> toTarget = distancesTo(g, landmarks, s, t, maxCost);
+
+    // every accepted path, even the ones with too many correspondances, since the next paths deviate from them
+    ArrayList<ArrayList<T>> accepted = new ArrayList<ArrayList<T>>();
+    ArrayList<Pair<ArrayList<T>, Double>> candidates = new ArrayList<Pair<ArrayList<T>, Double>>();
+    HashSet<List<T>> seen = new HashSet<List<T>>();
+    accepted.add(first);
+    seen.add(first);
+    res.add(new Pair<LinkedList<T>, Double>(new LinkedList<T>(first), firstCost));
+
+    long maxAccepted = (long) MAX_ROUNDS_FACTOR * k;
+    while (res.size() < k && accepted.size() < maxAccepted) {
+      ArrayList<T> last = accepted.get(accepted.size() - 1);
+      HashSet<T> root = new HashSet<T>();
+      double rootCost = 0.;
+      int rootTransfers = 0;
+      for (int i = 0; i < last.size() - 1; i++) {
+        T spur = last.get(i);
+        if (i > 0) {
+          rootCost += g.weight(last.get(i - 1), spur);
+          if (! sameLine.test(last.get(i - 1), spur)) rootTransfers++;
+        }
+        // every path deviating from here or further has at least the correspondances of the root
+        if (rootTransfers > maxTransfers) break;
+        if (toTarget.containsKey(spur) && rootCost + toTarget.get(spur) <= maxCost) {
+          HashSet<T> bannedNext = new HashSet<T>();
+          List<T> prefix = last.subList(0, i + 1);
+          for (ArrayList<T> p : accepted) {
+            if (p.size() > i + 1 && p.subList(0, i + 1).equals(prefix)) bannedNext.add(p.get(i + 1));
+          }
+          Pair<ArrayList<T>, Double> spurPath = spurPath(g, spur, t, root, bannedNext, toTarget, maxCost - rootCost);
+          if (spurPath != null) {
+            ArrayList<T> path = new ArrayList<T>(last.subList(0, i));
+            path.addAll(spurPath.getObj());
+            if (seen.add(path)) candidates.add(new Pair<ArrayList<T>, Double>(path, rootCost + spurPath.getValue()));
+          }
+        }
+        root.add(spur);
+      }
+      if (candidates.isEmpty()) break;
+
+      // the cheapest candidate, the first found in case of a tie so that the result doesn't depend on hashing
+      int best = 0;
+      for (int i = 1; i < candidates.size(); i++) {
+        if (candidates.get(i).getValue() < candidates.get(best).getValue()) best = i;
+      }
+      Pair<ArrayList<T>, Double> p = candidates.remove(best);
+      accepted.add(p.getObj());
+      if (transfers(p.getObj(), sameLine) <= maxTransfers) res.add(new Pair<LinkedList<T>, Double>(new LinkedList<T>(p.getObj()), p.getValue()));
+    }
+    return res;
+  }
+
+  // The shortest path from s to t, or null if there is none
+  private static <T> ArrayList<T> firstPath(WGraph<T> g, ContractionHierarchy<T> hierarchy, Landmarks<T> landmarks, T s, T t) {
+    HashMap<T, T> prev = new HashMap<T, T>();
+    HashMap<T, Double> dist = new HashMap<T, Double>();
+    if (hierarchy != null) hierarchy.shortestPath(s, t, prev, dist);
+    else if (landmarks != null) AStar.shortestPath(g, landmarks, s, t, prev, dist);
+    else Dijkstra.shortestPath(g, s, t, prev, dist);
+    Double d = dist.get(t);
+    if (d == null || d == Double.POSITIVE_INFINITY) return null;
+    LinkedList<T> path = new LinkedList<T>();
+    for (T v = t; v != null && ! v.equals(s); v = prev.get(v)) path.addFirst(v);
+    path.addFirst(s);
+    return new ArrayList<T>(path);
+  }
+
+  // Backward search from t giving the distance to t of the vertices which may be on a path from s costing at most maxCost,
+  // that is to say the vertices v such that a lower bound of the distance from s to v plus the distance from v to t is at most maxCost:
+  // the bounds given by the landmarks are consistent, so the search settles them by increasing bound plus distance and stops beyond maxCost.
+  private static <T> HashMap<T, Double> distancesTo(WGraph<T> g, Landmarks<T> landmarks, T s, T t, double maxCost) {
+    HashMap<T, Double> res = new HashMap<T, Double>();
+    HashMap<T, Double> dist = new HashMap<T, Double>();
+    PriorityQueue<T> queue = new PriorityQueue<T>();
+    dist.put(t, 0.);
+    queue.add(t, fromStart(landmarks, s, t));
+    while (! queue.isEmpty()) {
+      T u = queue.poll();
+      Double du = dist.get(u);
+      if (du + fromStart(landmarks, s, u) > maxCost) break;
+      res.put(u, du);
+      for (T p : g.predecessors(u)) {
+        double d = du + g.weight(p, u);
+        if (d == Double.POSITIVE_INFINITY || res.containsKey(p)) continue;
+        Double old = dist.get(p);
+        if (old == null || d < old) {
+          dist.put(p, d);
+          double key = d + fromStart(landmarks, s, p);
+          if (! queue.updatePriority(p, key)) queue.add(p, key);
+        }
+      }
+    }
+    return res;
+  }
+
+  private static <T> double fromStart(Landmarks<T> landmarks, T s, T v) {
+    return (landmarks == null) ? 0. : landmarks.lowerBound(s, v);
+  }
+
+  // A* from spur to t avoiding the vertices of the root and the edges from spur to bannedNext, the vertices without a distance to t are avoided too,
+  // returns the path and its cost or null if there is none under bound
+  private static <T> Pair<ArrayList<T>, Double> spurPath(WGraph<T> g, T spur, T t, HashSet<T> root, HashSet<T> bannedNext, HashMap<T, Double> toTarget, double bound) {
+    HashMap<T, Double> dist = new HashMap<T, Double>();
+    HashMap<T, T> prev = new HashMap<T, T>();
+    PriorityQueue<T> queue = new PriorityQueue<T>();
+    dist.put(spur, 0.);
+    queue.add(spur, toTarget.get(spur));
+    while (! queue.isEmpty()) {
+      T u = queue.poll();
+      if (u.equals(t)) break;
+      Double du = dist.get(u);
+      for (T v : g.neighbors(u)) {
+        if (root.contains(v) || (u.equals(spur) && bannedNext.contains(v))) continue;
+        Double h = toTarget.get(v);
+        if (h == null) continue;
+        double d = du + g.weight(u, v);
+        if (d + h > bound) continue;
+        Double old = dist.get(v);
+        if (old == null || d < old) {
+          dist.put(v, d);
+          prev.put(v, u);
+          if (! queue.updatePriority(v, d + h)) queue.add(v, d + h);
+        }
+      }
+    }
+    if (! dist.containsKey(t)) return null;
+    LinkedList<T> path = new LinkedList<T>();
+    for (T v = t; v != null; v = prev.get(v)) path.addFirst(v);
+    return new Pair<ArrayList<T>, Double>(new ArrayList<T>(path), dist.get(t));
+  }
+
+  private static <T> double cost(WGraph<T> g, List<T> path) {
+    double res = 0.;
+    for (int i = 1; i < path.size(); i++) res += g.weight(path.get(i - 1), path.get(i));
+    return res;
+  }
+
+  private static <T> int transfers(List<T> path, BiPredicate<T, T> sameLine) {
+    int res = 0;
+    for (int i = 1; i < path.size(); i++) if (! sameLine.test(path.get(i - 1), path.get(i))) res++;
+    return res;
+  }
+
+}
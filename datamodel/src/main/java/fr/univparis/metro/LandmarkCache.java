@@ -0,0 +1,78 @@
+package fr.univparis.metro;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores, for every city, the {@link Landmarks} of its original subway graph.
+ * They are computed only once since perturbations only slow down or shut down edges;
+ * whether they are still valid for the actual trafics is checked once per version of the trafics (see {@link Trafics#getVersion(String)}).
+ */
+public class LandmarkCache {
+
+ /**
+  * The number of landmarks chosen in every city
+  */
+  public static final int NB_LANDMARKS = 8;
+
+  // The landmarks of the initial graph of a city, and whether they are valid for one version of its trafics, an entry is never modified
+  private static class Entry {
+    private final WGraph<Station> initial;
+    private final Landmarks<Station> landmarks;
+    private final long version;
+    private final boolean valid;
+
+    private Entry(WGraph<Station> initial, Landmarks<Station> landmarks, long version, boolean valid) {
+      this.initial = initial;
+      this.landmarks = landmarks;
+      this.version = version;
+      this.valid = valid;
+    }
+  }
+
+  // the entries are read without any lock, they are computed with the lock of their city
+  private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+ /**
+  * Return the landmarks of a city if they are valid for its actual trafics.
+  * Only the requests of a city whose landmarks are computed or checked wait for them, the other cities are not blocked.
+  * @param city the city which we want the landmarks
+  * @return the landmarks of the city, or null if the actual trafics make them invalid (for example if a line is sped up)
+  */
+  public static Landmarks<Station> get(String city) {
+    WGraph<Station> initial = Trafics.getInitialGraph(city);
+    // the version is read before the graph: if they don't match, the graph is newer and will be checked again with the next version
+    long version = Trafics.getVersion(city);
+    Entry e = entries.get(city);
+    if (e == null || e.initial != initial || e.version < version) {
+      synchronized (lock(city)) {
+        e = entries.get(city);
+        if (e == null || e.initial != initial) {
+          Landmarks<Station> landmarks = new Landmarks<Station>(initial, NB_LANDMARKS);
+          e = new Entry(initial, landmarks, version, landmarks.isLowerBoundOf(Trafics.getGraph(city)));
+          entries.put(city, e);
+        }
+        else if (e.version < version) {
+          e = new Entry(initial, e.landmarks, version, e.landmarks.isLowerBoundOf(Trafics.getGraph(city)));
+          entries.put(city, e);
+        }
+      }
+    }
+    return e.valid ? e.landmarks : null;
+  }
+
+ /**
+  * Forget the landmarks of a city
+  * @param city the city which is unloaded
+  */
+  public static void evict(String city) {
+    synchronized (lock(city)) {
+      entries.remove(city);
+    }
+  }
+
+  private static Object lock(String city) {
+    return locks.computeIfAbsent(city, c -> new Object());
+  }
+
+}
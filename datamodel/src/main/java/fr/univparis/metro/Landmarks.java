@@ -0,0 +1,135 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Lower bounds of the distances of a graph computed with landmarks and the triangle inequality.
+ * For a few chosen vertices L (the landmarks) the distances from L to every vertex and from every vertex to L are precomputed,
+ * then for any vertices v and t : d(v, t) &gt;= d(L, t) - d(L, v) and d(v, t) &gt;= d(v, L) - d(t, L).
+ * The bounds stay valid for any graph obtained by increasing weights or removing edges of the graph on which they were computed,
+ * see {@link #isLowerBoundOf(WGraph)}.
+ */
+public class Landmarks<T> {
+
+  private final CSRGraph<T> graph;
+  private final int[] landmarks;
+  private final double[][] from;
+  private final double[][] to;
+
+ /**
+  * Chooses landmarks in a graph and computes the distances from and to them.
+  * Landmarks are chosen one after the other as the vertex the farthest from those already chosen.
+  * @param g the graph on which the distances are computed
+  * @param k the number of landmarks (at most the number of vertices of g)
+  */
+  public Landmarks(WGraph<T> g, int k) {
+    this.graph = new CSRGraph<T>(g);
+    int n = graph.nbVertex();
+    k = Math.min(k, n);
+    CSRGraph<T> transpose = graph.transpose();
+    IntPriorityQueue queue = new IntPriorityQueue(n);
+    int[] prev = new int[n];
+    double[] nearest = new double[n];
+    Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+
+    this.landmarks = new int[k];
+    this.from = new double[k][n];
+    this.to = new double[k][n];
+    int next = 0;
+    for (int l = 0; l < k; l++) {
+      landmarks[l] = next;
+      Dijkstra.shortestPath(graph, next, prev, from[l], queue);
+      Dijkstra.shortestPath(transpose, next, prev, to[l], queue);
+      double farthest = -1;
+      for (int v = 0; v < n; v++) {
+        if (from[l][v] < nearest[v]) nearest[v] = from[l][v];
+        if (nearest[v] < Double.POSITIVE_INFINITY && nearest[v] > farthest) {
+          farthest = nearest[v];
+          next = v;
+        }
+      }
+    }
+  }
+
+ /**
+  * Returns the graph on which the distances have been computed
+  * @return the graph on which the distances have been computed
+  */
+  public CSRGraph<T> getGraph() {return graph;}
+
+ /**
+  * Returns the landmarks
+  * @return the landmarks
+  */
+  public ArrayList<T> getLandmarks() {
+    ArrayList<T> res = new ArrayList<T>(landmarks.length);
+    for (int l : landmarks) res.add(graph.vertex(l));
+    return res;
+  }
+
+ /**
+  * Returns a lower bound of the distance between two vertices
+  * @param v the start of the path
+  * @param t the end of the path
+  * @return a lower bound of the distance between v and t, positive infinity if there is no path from v to t,
+  *         0 if one of the vertices was not in the graph
+  */
+  public double lowerBound(T v, T t) {
+    int i = graph.id(v);
+    int j = graph.id(t);
+    if (i == -1 || j == -1) return 0.;
+    return lowerBound(i, j);
+  }
+
+ /**
+  * Returns a lower bound of the distance between two vertices given by their ids in {@link #getGraph()}
+  * @param v the id of the start of the path
+  * @param t the id of the end of the path
+  * @return a lower bound of the distance between v and t, positive infinity if there is no path from v to t
+  */
+  public double lowerBound(int v, int t) {
+    double res = 0.;
+    for (int l = 0; l < landmarks.length; l++) {
+      double b1 = from[l][t] - from[l][v];
+      double b2 = to[l][v] - to[l][t];
+      // infinity minus infinity gives NaN, which is never greater than res
+      if (b1 > res) res = b1;
+      if (b2 > res) res = b2;
+    }
+    return res;
+  }
+
+ /**
+  * Indicates if the bounds are valid for a graph, that is to say if every edge of g is an edge of the graph
+  * on which the bounds were computed with a weight greater or equal.
+  * Slowing down or shutting down edges keeps the bounds valid, adding edges or speeding them up does not.
+  * It runs in a time proportional to the number of edges of g.
+  * @param g the graph which we want to search with the bounds
+  * @return true if and only if the bounds are lower bounds of the distances in g
+  */
+  public boolean isLowerBoundOf(WGraph<T> g) {
+    if (g.nbVertex() != graph.nbVertex()) return false;
+    int[] offsets = graph.getOffsets();
+    int[] targets = graph.getTargets();
+    double[] weights = graph.getWeights();
+    for (T t : g.getVertices()) {
+      int i = graph.id(t);
+      if (i == -1) return false;
+      for (T n : g.neighbors(t)) {
+        int j = graph.id(n);
+        double w = g.weight(t, n);
+        boolean found = false;
+        for (int e = offsets[i]; e < offsets[i + 1] && ! found; e++) {
+          if (targets[e] == j) {
+            if (w < weights[e]) return false;
+            found = true;
+          }
+        }
+        if (! found) return false;
+      }
+    }
+    return true;
+  }
+
+}
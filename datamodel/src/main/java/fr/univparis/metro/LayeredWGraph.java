@@ -0,0 +1,160 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * An immutable view of a {@link WGraph} whose weights are modified by a stack of layers.
+ * Every layer gives a factor for every edge: the weight of an edge is its weight in the base graph multiplied by the factors of all the layers,
+ * or positive infinity as soon as a layer gives an infinite factor (the edge is shut down, even if its weight is 0).
+ * Since the weight only depends on the set of layers, adding or removing a layer never depends on the order in which they were added,
+ * and it costs the time to build the layer whatever the size of the graph.
+ * The graph can't be modified: the methods modifying it throw an UnsupportedOperationException.
+ */
+public class LayeredWGraph<T> extends WGraph<T> {
+
+ /**
+  * A modification of the weights of a graph
+  * @param <T> the type of the vertices
+  */
+  @FunctionalInterface
+  public static interface Layer<T> {
+   /**
+    * Returns the factor of the weight of an edge
+    * @param s the start of the edge
+    * @param p the end of the edge
+    * @return the factor of the weight of the edge, 1 if the layer doesn't modify it, positive infinity if it shuts it down
+    */
+    double factor(T s, T p);
+  }
+
+  private final WGraph<T> base;
+  private final List<Layer<T>> layers;
+
+ /**
+  * Creates a view without any layer over a graph
+  * @param base the graph read by the view, it must not be modified while the view is used
+  */
+  public LayeredWGraph(WGraph<T> base) {
+    this(base, new ArrayList<Layer<T>>());
+  }
+
+  private LayeredWGraph(WGraph<T> base, List<Layer<T>> layers) {
+    this.base = base;
+    this.layers = Collections.unmodifiableList(layers);
+  }
+
+ /**
+  * Returns the graph under the layers
+  * @return the graph under the layers
+  */
+  public WGraph<T> getBase() {return base;}
+
+ /**
+  * Returns the layers of the view
+  * @return an unmodifiable list of the layers of the view
+  */
+  public List<Layer<T>> getLayers() {return layers;}
+
+ /**
+  * Returns a view over the same graph with one more layer, this view is not modified
+  * @param layer the layer to add
+  * @return a view with the layers of this view and layer
+  */
+  public LayeredWGraph<T> withLayer(Layer<T> layer) {
+    ArrayList<Layer<T>> l = new ArrayList<Layer<T>>(layers);
+    l.add(layer);
+    return new LayeredWGraph<T>(base, l);
+  }
+
+ /**
+  * Returns a view over the same graph without a layer, this view is not modified
+  * @param layer the layer to remove
+  * @return a view with the layers of this view but layer
+  */
+  public LayeredWGraph<T> withoutLayer(Layer<T> layer) {
+    ArrayList<Layer<T>> l = new ArrayList<Layer<T>>(layers);
+    l.remove(layer);
+    return new LayeredWGraph<T>(base, l);
+  }
+
+  @Override
+  public Set<T> getVertices() {
+    return Collections.unmodifiableSet(base.getVertices());
+  }
+
+  @Override
+  public int nbVertex() {return base.nbVertex();}
+
+  @Override
+  public Set<T> neighbors(T vertex) {
+    return Collections.unmodifiableSet(base.neighbors(vertex));
+  }
+
+  @Override
+  public Set<T> predecessors(T vertex) {return base.predecessors(vertex);}
+
+  @Override
+  public Double weight(T s, T p) {
+    double w = base.weight(s, p);
+    if (Double.isNaN(w)) return w;
+    for (Layer<T> l : layers) {
+      double f = l.factor(s, p);
+      if (f == Double.POSITIVE_INFINITY) return f;
+      w *= f;
+    }
+    return w;
+  }
+
+  @Override
+  public boolean containsVertex(T s) {return base.containsVertex(s);}
+
+  @Override
+  public boolean equals(WGraph<T> g) {
+    return this.clone().equals(g);
+  }
+
+  @Override
+  public void setWeight(T s, T p, Double weight) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public void apply(WGraph<T> g) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public boolean addVertex(T v) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public boolean deleteVertex(T v) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public boolean addEdge(T s, T p, Double weight) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public boolean removeEdge(T s, T p) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public boolean addDoubleEdge(T e, Double weight, Predicate<T> p) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+  @Override
+  public void splitVertex(T old, T newVert1, T newVert2) {
+    throw new UnsupportedOperationException("A layered graph is immutable");
+  }
+
+}
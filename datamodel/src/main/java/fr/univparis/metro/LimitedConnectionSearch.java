@@ -2,12 +2,23 @@ package fr.univparis.metro;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * An implemetation of Floyd's algorithm to find an itinerary that limits the number of correspondances.
  */
 public class LimitedConnectionSearch {
 
+    /**
+     * The size of the square blocks used by the parallel versions of Floyd's algorithm.
+     * A block of each of the three matrices fits in the L2 cache.
+     */
+    public static final int BLOCK_SIZE = 64;
+
+    private static final ForkJoinPool pool = ForkJoinPool.commonPool();
+
     /**
      * Execute Floyd's algorithm on graph represented by matrices to determine the time and number of correspondances of any itinerary.
      * @param direct is a matrice in which the coefficient direct(x, y) is the time it takes to get to the station n°y from the sation n°x.
@@ -50,26 +61,198 @@ public class LimitedConnectionSearch {
      */
     public static Double[][] floyd(Double[][] d){
         int n = d.length;
+        double[] flat = new double[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                flat[i * n + j] = d[i][j];
+            }
+        }
+        flat = parallelFloyd(flat, n);
         Double[][] ret = new Double[n][n];
         for(int i = 0; i < n; i++){
             for(int j = 0; j < n; j++){
-                ret[i][j] = d[i][j];
+                ret[i][j] = flat[i * n + j];
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Execute Floyd's algorithm on matrices stored in flat arrays, the coefficient (x, y) of a matrice being at the index x * n + y.
+     * It gives the same result as {@link #floyd(Double[][], Object[][], Integer[][])} without boxing any coefficient.
+     * @param direct is a matrice in which the coefficient direct(x, y) is the time it takes to get to the station n°y from the sation n°x.
+     * @param via is a matrice in which via(x, y) is the identifier of the last station we get through to get to the sation n°y from the station n°x.
+     * @param intermediate is a matrice in which intermediate(x, y) is the number of correspondances to get to the station n°y from the station n°x.
+     * @param n the number of stations, every array has a length of n * n.
+     */
+    public static void floyd(double[] direct, int[] via, int[] intermediate, int n){
+        for (int k = 0; k < n; k++) {
+            int rowK = k * n;
+            for (int i = 0; i < n; i++) {
+                int rowI = i * n;
+                double dik = direct[rowI + k];
+                if (dik == Double.POSITIVE_INFINITY) continue;
+                int intermediateIK = intermediate[rowI + k];
+                for (int j = 0; j < n; j++) {
+                    double dkj = direct[rowK + j];
+                    if (dkj == Double.POSITIVE_INFINITY) continue;
+                    double u = dik + dkj;
+                    int v = intermediateIK + intermediate[rowK + j];
+                    int ij = rowI + j;
+                    if (v < intermediate[ij] || (v == intermediate[ij] && u < direct[ij])){
+                        direct[ij] = u;
+                        via[ij] = via[rowK + j];
+                        intermediate[ij] = v;
+                    }
+                }
             }
         }
+    }
+
+    /**
+     * Execute Floyd's algorithm on a matrice stored in a flat array, the coefficient (x, y) being at the index x * n + y.
+     * @param d is a matrice in which the coefficient d(x, y) is the time it takes to get to the station n°y from the sation n°x.
+     * @param n the number of stations, d has a length of n * n.
+     * @return A copy of the matrice d, on which Floyd's algorithm is executed.
+     */
+    public static double[] floyd(double[] d, int n){
+        double[] ret = d.clone();
         for(int k = 0; k < n; k++){
+            int rowK = k * n;
             for(int i = 0; i < n; i++){
+                int rowI = i * n;
+                double dik = ret[rowI + k];
+                if(dik == Double.POSITIVE_INFINITY) continue;
                 for(int j = 0; j < n; j++){
-                    Double dik = ret[i][k];
-                    Double dkj = ret[k][j];
-                    if(dik == Double.POSITIVE_INFINITY || dkj == Double.POSITIVE_INFINITY) continue;
-                    Double u = dik + dkj;
-                    if(u < ret[i][j]) ret[i][j] = u;
+                    double u = dik + ret[rowK + j];
+                    if(u < ret[rowI + j]) ret[rowI + j] = u;
                 }
             }
         }
         return ret;
     }
 
+    /**
+     * Execute a blocked version of Floyd's algorithm on flat matrices, it gives the same times and numbers of correspondances as {@link #floyd(double[], int[], int[], int)}.
+     * The matrices are cut in blocks of {@link #BLOCK_SIZE} stations, for every diagonal block the blocks on the same row and column are
+     * updated in parallel, then all the other blocks in parallel, on the common ForkJoinPool.
+     * When two itineraries have the same time and number of correspondances the one stored in via may differ from the sequential version.
+     * @param direct is a matrice in which the coefficient direct(x, y) is the time it takes to get to the station n°y from the sation n°x.
+     * @param via is a matrice in which via(x, y) is the identifier of the last station we get through to get to the sation n°y from the station n°x.
+     * @param intermediate is a matrice in which intermediate(x, y) is the number of correspondances to get to the station n°y from the station n°x.
+     * @param n the number of stations, every array has a length of n * n.
+     */
+    public static void parallelFloyd(double[] direct, int[] via, int[] intermediate, int n){
+        parallelFloyd(direct, via, intermediate, n, BLOCK_SIZE);
+    }
+
+    /**
+     * Execute a blocked version of Floyd's algorithm on a flat matrice, the blocks being updated in parallel as in {@link #parallelFloyd(double[], int[], int[], int)}.
+     * @param d is a matrice in which the coefficient d(x, y) is the time it takes to get to the station n°y from the sation n°x.
+     * @param n the number of stations, d has a length of n * n.
+     * @return A copy of the matrice d, on which Floyd's algorithm is executed.
+     */
+    public static double[] parallelFloyd(double[] d, int n){
+        double[] ret = d.clone();
+        parallelFloyd(ret, null, null, n, BLOCK_SIZE);
+        return ret;
+    }
+
+    static void parallelFloyd(double[] direct, int[] via, int[] intermediate, int n, int blockSize){
+        if (n <= blockSize) {
+            if (via == null) System.arraycopy(floyd(direct, n), 0, direct, 0, direct.length);
+            else floyd(direct, via, intermediate, n);
+            return;
+        }
+        int nbBlock = (n + blockSize - 1) / blockSize;
+        for (int k = 0; k < nbBlock; k++) {
+            new BlockTask(direct, via, intermediate, n, blockSize, k, k, k).compute();
+
+            ArrayList<BlockTask> line = new ArrayList<BlockTask>();
+            for (int x = 0; x < nbBlock; x++) {
+                if (x == k) continue;
+                line.add(new BlockTask(direct, via, intermediate, n, blockSize, k, x, k));
+                line.add(new BlockTask(direct, via, intermediate, n, blockSize, x, k, k));
+            }
+            runInParallel(line);
+
+            ArrayList<BlockTask> others = new ArrayList<BlockTask>();
+            for (int x = 0; x < nbBlock; x++) {
+                for (int y = 0; y < nbBlock; y++) {
+                    if (x != k && y != k) others.add(new BlockTask(direct, via, intermediate, n, blockSize, x, y, k));
+                }
+            }
+            runInParallel(others);
+        }
+    }
+
+    private static void runInParallel(ArrayList<BlockTask> tasks){
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Relax every coefficient of the block (rowBlock, columnBlock) through the stations of the block k.
+     */
+    private static class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] direct;
+        private final int[] via;
+        private final int[] intermediate;
+        private final int n, blockSize, rowBlock, columnBlock, k;
+
+        BlockTask(double[] direct, int[] via, int[] intermediate, int n, int blockSize, int rowBlock, int columnBlock, int k){
+            this.direct = direct;
+            this.via = via;
+            this.intermediate = intermediate;
+            this.n = n;
+            this.blockSize = blockSize;
+            this.rowBlock = rowBlock;
+            this.columnBlock = columnBlock;
+            this.k = k;
+        }
+
+        @Override
+        protected void compute(){
+            int k1 = Math.min(n, (k + 1) * blockSize);
+            int i1 = Math.min(n, (rowBlock + 1) * blockSize);
+            int j0 = columnBlock * blockSize;
+            int j1 = Math.min(n, j0 + blockSize);
+            for (int kk = k * blockSize; kk < k1; kk++) {
+                int rowK = kk * n;
+                for (int i = rowBlock * blockSize; i < i1; i++) {
+                    int rowI = i * n;
+                    double dik = direct[rowI + kk];
+                    if (dik == Double.POSITIVE_INFINITY) continue;
+                    if (via == null) {
+                        for (int j = j0; j < j1; j++) {
+                            double u = dik + direct[rowK + j];
+                            if (u < direct[rowI + j]) direct[rowI + j] = u;
+                        }
+                        continue;
+                    }
+                    int intermediateIK = intermediate[rowI + kk];
+                    for (int j = j0; j < j1; j++) {
+                        double dkj = direct[rowK + j];
+                        if (dkj == Double.POSITIVE_INFINITY) continue;
+                        double u = dik + dkj;
+                        int v = intermediateIK + intermediate[rowK + j];
+                        int ij = rowI + j;
+                        if (v < intermediate[ij] || (v == intermediate[ij] && u < direct[ij])){
+                            direct[ij] = u;
+                            via[ij] = via[rowK + j];
+                            intermediate[ij] = v;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Store the itinerary to get from a station to an other in a arraylist of string, each string being a name of a station.
      * @param g the graph of the whole subway network.
@@ -0,0 +1,139 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An index of the lines of a subway graph: for every line, its stations and the edges between two of its stations.
+ * The stations of a line include the branches of its forks and cycles (the stations named with $1 and $2), meta stations belong to no line.
+ * Everything about a line is found in a time proportional to its size instead of the size of the graph.
+ */
+public class LineIndex {
+
+  private final WGraph<Station> graph;
+  private final HashMap<String, ArrayList<Station>> stations;
+  private final HashMap<String, ArrayList<Pair<Station, Station>>> edges;
+  private final HashMap<Station, ArrayList<Station>> lineNeighbors;
+
+ /**
+  * Builds the index of a graph in a time proportional to its number of edges
+  * @param g the graph to index, it must not be modified while the index is used
+  */
+  public LineIndex(WGraph<Station> g) {
+    this.graph = g;
+    this.stations = new HashMap<String, ArrayList<Station>>();
+    this.edges = new HashMap<String, ArrayList<Pair<Station, Station>>>();
+    this.lineNeighbors = new HashMap<Station, ArrayList<Station>>();
+    HashMap<String, ArrayList<Station>> unordered = new HashMap<String, ArrayList<Station>>();
+    for (Station s : g.getVertices()) {
+      if (s.isMeta()) continue;
+      unordered.computeIfAbsent(s.getLine(), l -> new ArrayList<Station>()).add(s);
+      ArrayList<Station> neighbors = new ArrayList<Station>();
+      for (Station n : g.neighbors(s)) {
+        if (! n.getLine().equals(s.getLine())) continue;
+        neighbors.add(n);
+        edges.computeIfAbsent(s.getLine(), l -> new ArrayList<Pair<Station, Station>>()).add(new Pair<Station, Station>(s, n));
+      }
+      lineNeighbors.put(s, neighbors);
+    }
+    for (String line : unordered.keySet()) stations.put(line, order(unordered.get(line)));
+  }
+
+  // Orders the stations of a line by a depth-first search from a terminus, so that the branches are listed one after the other.
+  // The stations are tried from the fewest neighbors on the line to the most (then by name), so the search starts at a terminus
+  // and the next ones only start from stations that can't be reached from it (for example at the end of a one way branch).
+  private ArrayList<Station> order(ArrayList<Station> line) {
+    line.sort(Comparator.<Station>comparingInt(s -> lineNeighbors.get(s).size()).thenComparing(Station::getName));
+    ArrayList<Station> res = new ArrayList<Station>(line.size());
+    HashSet<Station> seen = new HashSet<Station>();
+    LinkedList<Station> stack = new LinkedList<Station>();
+    for (Station first : line) {
+      stack.push(first);
+      while (! stack.isEmpty()) {
+        Station s = stack.pop();
+        if (! seen.add(s)) continue;
+        res.add(s);
+        for (Station n : lineNeighbors.get(s)) if (! seen.contains(n)) stack.push(n);
+      }
+    }
+    return res;
+  }
+
+ /**
+  * Returns the lines of the graph
+  * @return the names of the lines of the graph
+  */
+  public Set<String> getLines() {
+    return Collections.unmodifiableSet(stations.keySet());
+  }
+
+ /**
+  * Returns the stations of a line, starting from a terminus
+  * @param line the name of the line
+  * @return an unmodifiable list of the stations of the line, empty if there is no such line
+  */
+  public List<Station> getStations(String line) {
+    ArrayList<Station> res = stations.get(line);
+    return (res == null) ? Collections.<Station>emptyList() : Collections.unmodifiableList(res);
+  }
+
+ /**
+  * Returns the edges between two stations of a line
+  * @param line the name of the line
+  * @return an unmodifiable list of the edges of the line (start, end), empty if there is no such line
+  */
+  public List<Pair<Station, Station>> getEdges(String line) {
+    ArrayList<Pair<Station, Station>> res = edges.get(line);
+    return (res == null) ? Collections.<Pair<Station, Station>>emptyList() : Collections.unmodifiableList(res);
+  }
+
+ /**
+  * Returns the stations of the same line that can be reached from a station with one edge
+  * @param s a station of the graph
+  * @return an unmodifiable list of the neighbors of s on its line, empty if s is a meta station or is not in the graph
+  */
+  public List<Station> lineNeighbors(Station s) {
+    ArrayList<Station> res = lineNeighbors.get(s);
+    return (res == null) ? Collections.<Station>emptyList() : Collections.unmodifiableList(res);
+  }
+
+ /**
+  * Returns the fastest way between two stations of the same line without leaving the line.
+  * The search only visits the stations of the line.
+  * @param start the first station of the segment
+  * @param end the last station of the segment
+  * @return the stations of the segment from start to end (both included), empty if they are not on the same line or if there is no way
+  */
+  public LinkedList<Station> segment(Station start, Station end) {
+    LinkedList<Station> res = new LinkedList<Station>();
+    if (! start.getLine().equals(end.getLine()) || ! lineNeighbors.containsKey(start) || ! lineNeighbors.containsKey(end)) return res;
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    PriorityQueue<Station> queue = new PriorityQueue<Station>();
+    dist.put(start, 0.);
+    queue.add(start, 0.);
+    while (! queue.isEmpty()) {
+      Station s = queue.poll();
+      if (s.equals(end)) break;
+      for (Station n : lineNeighbors.get(s)) {
+        double d = dist.get(s) + graph.weight(s, n);
+        Double old = dist.get(n);
+        if (old == null || d < old) {
+          dist.put(n, d);
+          prev.put(n, s);
+          if (! queue.updatePriority(n, d)) queue.add(n, d);
+        }
+      }
+    }
+    if (! dist.containsKey(end)) return res;
+    for (Station s = end; s != null; s = prev.get(s)) res.addFirst(s);
+    return res;
+  }
+
+}
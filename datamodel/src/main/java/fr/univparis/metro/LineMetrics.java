@@ -0,0 +1,162 @@
+package fr.univparis.metro;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The figures about every line of a graph, all computed once when the metrics are created.
+ * The time of a line is the longest time between two of its stations without any correspondance (from one terminus to the other).
+ * It is found by searches that only visit the stations of the line, using the structure given by a {@link LineIndex}:
+ * their cost only depends on the size of the line instead of the size of the whole graph.
+ * In case of a tie between two lines, the one whose name comes first is chosen.
+ */
+public class LineMetrics {
+
+  private final TreeMap<String, Double> times;
+  private final TreeMap<String, Integer> nbStations;
+
+ /**
+  * Computes the metrics of the lines of a graph
+  * @param g the graph, it is not modified
+  */
+  public LineMetrics(WGraph<Station> g) {
+    this(g, new LineIndex(g));
+  }
+
+ /**
+  * Computes the metrics of the lines of a graph whose lines are already indexed
+  * @param g the graph giving the weights, it is not modified
+  * @param lines the index of the lines of g, or of a graph with the same edges (for example the initial graph of g in the {@link Trafics})
+  */
+  public LineMetrics(WGraph<Station> g, LineIndex lines) {
+    this.times = new TreeMap<String, Double>();
+    this.nbStations = new TreeMap<String, Integer>();
+    for (String line : lines.getLines()) {
+      List<Station> stations = lines.getStations(line);
+      nbStations.put(line, stations.size());
+      times.put(line, diameter(g, lines, stations));
+    }
+  }
+
+  // The longest time between two stations of a line without leaving the line, positive infinity if one of them can't be reached from another.
+  // The line is copied into a matrix of weights and a Dijkstra without any queue is run from every station: a line has a few dozens of stations,
+  // so looking for the closest station in an array is faster than maintaining a heap.
+  private static double diameter(WGraph<Station> g, LineIndex lines, List<Station> stations) {
+    int n = stations.size();
+    HashMap<Station, Integer> ids = new HashMap<Station, Integer>();
+    for (Station s : stations) ids.put(s, ids.size());
+    double[][] weights = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+      Station s = stations.get(i);
+      for (Station p : lines.lineNeighbors(s)) weights[i][ids.get(p)] = Math.min(weights[i][ids.get(p)], g.weight(s, p));
+    }
+
+    double res = 0.;
+    double[] dist = new double[n];
+    boolean[] settled = new boolean[n];
+    for (int s = 0; s < n; s++) {
+      Arrays.fill(dist, Double.POSITIVE_INFINITY);
+      Arrays.fill(settled, false);
+      dist[s] = 0.;
+      for (int k = 0; k < n; k++) {
+        int u = -1;
+        for (int i = 0; i < n; i++) if (! settled[i] && (u < 0 || dist[i] < dist[u])) u = i;
+        // the stations left can't be reached
+        if (dist[u] == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+        settled[u] = true;
+        res = Math.max(res, dist[u]);
+        for (int v = 0; v < n; v++) if (dist[u] + weights[u][v] < dist[v]) dist[v] = dist[u] + weights[u][v];
+      }
+    }
+    return res;
+  }
+
+ /**
+  * Returns the time of every line
+  * @return an unmodifiable map of the time from one terminus to the other of every line, sorted by the names of the lines
+  */
+  public Map<String, Double> getTimes() {
+    return Collections.unmodifiableMap(times);
+  }
+
+ /**
+  * Returns the time from one terminus of a line to the other
+  * @param line the name of the line
+  * @return the time of the line, or null if there is no such line
+  */
+  public Double getTime(String line) {return times.get(line);}
+
+ /**
+  * Returns the average time of the lines, as {@link Statistics#averageTimeOnEachLine(WGraph, HashMap)}
+  * @return the sum of the times of the lines, rounded down, divided by the number of lines
+  */
+  public int getAverageTime() {
+    if (times.isEmpty()) return 0;
+    double d = 0.;
+    for (double t : times.values()) d += t;
+    return (int) d / times.size();
+  }
+
+ /**
+  * Returns the line with the longest time
+  * @return the name of the line and its time, ("", 0) if there is no line
+  */
+  public Pair<String, Double> getLongestLine() {
+    Pair<String, Double> res = new Pair<String, Double>("", 0.);
+    for (Map.Entry<String, Double> e : times.entrySet()) {
+      if (e.getValue() > res.getValue()) res = new Pair<String, Double>(e.getKey(), e.getValue());
+    }
+    return res;
+  }
+
+ /**
+  * Returns the line with the shortest time
+  * @return the name of the line and its time, ("", positive infinity) if there is no line
+  */
+  public Pair<String, Double> getShortestLine() {
+    Pair<String, Double> res = new Pair<String, Double>("", Double.POSITIVE_INFINITY);
+    for (Map.Entry<String, Double> e : times.entrySet()) {
+      if (e.getValue() < res.getValue()) res = new Pair<String, Double>(e.getKey(), e.getValue());
+    }
+    return res;
+  }
+
+ /**
+  * Returns the number of stations of a line, the branches of its forks included
+  * @param line the name of the line
+  * @return the number of stations of the line, 0 if there is no such line
+  */
+  public int getNbStations(String line) {
+    return nbStations.getOrDefault(line, 0);
+  }
+
+ /**
+  * Returns the average number of stations of the lines
+  * @return the number of stations of all the lines divided by the number of lines, 0 if there is no line
+  */
+  public int getAverageNbOfStations() {
+    if (nbStations.isEmpty()) return 0;
+    int nb = 0;
+    for (int n : nbStations.values()) nb += n;
+    return nb / nbStations.size();
+  }
+
+ /**
+  * Returns the line with the most or the least stations
+  * @param max indicates if we want the line with the most stations (max == true) or the line with the least (max == false)
+  * @return the name of the line, or null if there is no line
+  */
+  public String getExtremumLine(boolean max) {
+    String res = null;
+    for (Map.Entry<String, Integer> e : nbStations.entrySet()) {
+      if (res == null || (max ? e.getValue() > nbStations.get(res) : e.getValue() < nbStations.get(res))) res = e.getKey();
+    }
+    return res;
+  }
+
+}
@@ -0,0 +1,291 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains, for every city, the longest trip between two stations under its actual trafics (see {@link Trafics#getGraph(String)}).
+ * The searches from every start station are kept and updated once per version of the trafics (see {@link Trafics#getVersion(String)}):
+ * the weights of the new version are compared with the previous ones, then in every search only the vertices whose shortest path
+ * uses an edge which got slower, and those to which an edge which got faster gives a shorter way, are searched again.
+ * The distances of the other vertices can't have changed, so the cost of an update is proportional to the part of the trips the perturbation modifies.
+ * The figures of every version are published together in a {@link Snapshot}.
+ */
+public class LiveStatistics {
+
+  // The searches from every start station of a city for one version of its trafics
+  private static class Searches {
+    private final WGraph<Station> initial;
+    private long version;
+    private CSRGraph<Station> graph;
+    // the start of every edge of graph, and the edges ending at every vertex: those of the vertex i are inEdges[inOffsets[i]] to inEdges[inOffsets[i + 1] - 1]
+    private final int[] from;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+    private final int[] sources;
+    private final int[] targets;
+    private final double[][] dist;
+    private final int[][] prev;
+    private final int[] farthest;
+    private int updated;
+    // the figures of the actual version, replaced after every update
+    private volatile Snapshot snapshot;
+
+    private Searches(WGraph<Station> initial, long version, WGraph<Station> actual) {
+      this.initial = initial;
+      this.version = version;
+      this.graph = new CSRGraph<Station>(initial).reweight(actual);
+      int n = graph.nbVertex();
+      int m = graph.nbEdge();
+      int[] offsets = graph.getOffsets();
+      int[] to = graph.getTargets();
+      this.from = new int[m];
+      this.inOffsets = new int[n + 1];
+      this.inEdges = new int[m];
+      for (int i = 0; i < n; i++) {
+        for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+          from[e] = i;
+          inOffsets[to[e] + 1]++;
+        }
+      }
+      for (int i = 0; i < n; i++) inOffsets[i + 1] += inOffsets[i];
+      int[] next = Arrays.copyOf(inOffsets, n);
+      for (int e = 0; e < m; e++) inEdges[next[to[e]]++] = e;
+
+      ArrayList<Integer> s = new ArrayList<Integer>();
+      ArrayList<Integer> t = new ArrayList<Integer>();
+      for (int i = 0; i < n; i++) {
+        if (graph.vertex(i).getLine().equals("Meta Station Start")) s.add(i);
+        if (graph.vertex(i).getLine().equals("Meta Station End")) t.add(i);
+      }
+      this.sources = s.stream().mapToInt(Integer::intValue).toArray();
+      this.targets = t.stream().mapToInt(Integer::intValue).toArray();
+      this.dist = new double[sources.length][n];
+      this.prev = new int[sources.length][n];
+      this.farthest = new int[sources.length];
+      IntPriorityQueue queue = new IntPriorityQueue(n);
+      for (int i = 0; i < sources.length; i++) {
+        Arrays.fill(dist[i], Double.POSITIVE_INFINITY);
+        Arrays.fill(prev[i], -1);
+        dist[i][sources[i]] = 0.;
+        queue.clear();
+        queue.add(sources[i], 0.);
+        updated += propagate(i, queue);
+        findFarthest(i);
+      }
+      this.snapshot = new Snapshot(this);
+    }
+
+    // Dijkstra from the vertices in the queue, the other vertices already have their distance
+    // Returns the number of vertices settled
+    private int propagate(int i, IntPriorityQueue queue) {
+      int[] offsets = graph.getOffsets();
+      int[] to = graph.getTargets();
+      double[] w = graph.getWeights();
+      double[] d = dist[i];
+      int settled = 0;
+      while (! queue.isEmpty()) {
+        int u = queue.poll();
+        settled++;
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int v = to[e];
+          if (d[u] + w[e] < d[v]) {
+            d[v] = d[u] + w[e];
+            prev[i][v] = u;
+            if (! queue.updatePriority(v, d[v])) queue.add(v, d[v]);
+          }
+        }
+      }
+      return settled;
+    }
+
+    private void findFarthest(int i) {
+      farthest[i] = -1;
+      for (int t : targets) {
+        double d = dist[i][t];
+        if (d < Double.POSITIVE_INFINITY && (farthest[i] < 0 || d > dist[i][farthest[i]])) farthest[i] = t;
+      }
+    }
+
+    // Moves the searches to a new version of the trafics
+    private void update(long version, WGraph<Station> actual) {
+      CSRGraph<Station> next = graph.reweight(actual);
+      double[] oldWeights = graph.getWeights();
+      double[] w = next.getWeights();
+      ArrayList<Integer> slower = new ArrayList<Integer>();
+      ArrayList<Integer> faster = new ArrayList<Integer>();
+      for (int e = 0; e < w.length; e++) {
+        if (w[e] > oldWeights[e]) slower.add(e);
+        else if (w[e] < oldWeights[e]) faster.add(e);
+      }
+      this.graph = next;
+      this.version = version;
+      this.updated = 0;
+      if (slower.isEmpty() && faster.isEmpty()) {
+        this.snapshot = new Snapshot(this);
+        return;
+      }
+
+      int[] offsets = graph.getOffsets();
+      int[] to = graph.getTargets();
+      IntPriorityQueue queue = new IntPriorityQueue(graph.nbVertex());
+      ArrayList<Integer> affected = new ArrayList<Integer>();
+      for (int i = 0; i < sources.length; i++) {
+        double[] d = dist[i];
+        int[] p = prev[i];
+        queue.clear();
+        affected.clear();
+        // the vertices whose shortest path uses a slower edge are the subtrees below these edges, they lose their distance...
+        for (int e : slower) {
+          int v = to[e];
+          if (p[v] == from[e] && d[v] < Double.POSITIVE_INFINITY) {
+            d[v] = Double.POSITIVE_INFINITY;
+            affected.add(v);
+          }
+        }
+        for (int k = 0; k < affected.size(); k++) {
+          int u = affected.get(k);
+          for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            int v = to[e];
+            if (p[v] == u && d[v] < Double.POSITIVE_INFINITY) {
+              d[v] = Double.POSITIVE_INFINITY;
+              affected.add(v);
+            }
+          }
+        }
+        // ...and get the best one through the vertices which kept theirs
+        for (int v : affected) {
+          p[v] = -1;
+          for (int k = inOffsets[v]; k < inOffsets[v + 1]; k++) {
+            int e = inEdges[k];
+            if (d[from[e]] + w[e] < d[v]) {
+              d[v] = d[from[e]] + w[e];
+              p[v] = from[e];
+            }
+          }
+          if (d[v] < Double.POSITIVE_INFINITY) queue.add(v, d[v]);
+        }
+        // a faster edge may be a shortcut
+        boolean changed = ! affected.isEmpty();
+        for (int e : faster) {
+          int u = from[e];
+          int v = to[e];
+          if (d[u] + w[e] < d[v]) {
+            d[v] = d[u] + w[e];
+            p[v] = u;
+            if (! queue.updatePriority(v, d[v])) queue.add(v, d[v]);
+            changed = true;
+          }
+        }
+        if (changed) {
+          updated += propagate(i, queue);
+          findFarthest(i);
+        }
+      }
+      this.snapshot = new Snapshot(this);
+    }
+  }
+
+  // the searches are only read and updated with the lock of their city, the snapshots are read without any lock
+  private static final ConcurrentHashMap<String, Searches> searches = new ConcurrentHashMap<String, Searches>();
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+ /**
+  * The statistics of a city for one version of its trafics. A snapshot is never modified, so all its figures are about the same version.
+  */
+  public static class Snapshot {
+    private final WGraph<Station> initial;
+    private final long version;
+    private final Pair<Pair<Station, Station>, Double> longestTrip;
+    private final int impossibleTrips;
+    private final int updateCost;
+
+    private Snapshot(Searches s) {
+      this.initial = s.initial;
+      this.version = s.version;
+      this.updateCost = s.updated;
+      int best = -1;
+      for (int i = 0; i < s.sources.length; i++) {
+        if (s.farthest[i] >= 0 && (best < 0 || s.dist[i][s.farthest[i]] > s.dist[best][s.farthest[best]])) best = i;
+      }
+      if (best < 0) this.longestTrip = new Pair<Pair<Station, Station>, Double>(new Pair<Station, Station>(null, null), 0.);
+      else {
+        Pair<Station, Station> trip = new Pair<Station, Station>(s.graph.vertex(s.sources[best]), s.graph.vertex(s.farthest[best]));
+        this.longestTrip = new Pair<Pair<Station, Station>, Double>(trip, s.dist[best][s.farthest[best]]);
+      }
+      int impossible = 0;
+      for (int i = 0; i < s.sources.length; i++) {
+        String name = s.graph.vertex(s.sources[i]).getName();
+        for (int t : s.targets) {
+          if (s.dist[i][t] == Double.POSITIVE_INFINITY && ! s.graph.vertex(t).getName().equals(name)) impossible++;
+        }
+      }
+      this.impossibleTrips = impossible;
+    }
+
+   /**
+    * Returns the version of the trafics of these statistics, see {@link Trafics#getVersion(String)}
+    * @return the version of the trafics
+    */
+    public long getVersion() {return version;}
+
+   /**
+    * Return the longest trip between two stations, among the trips which are still possible
+    * @return the start and the end (as meta stations) of the longest trip and its time, (null, null) and 0 if there is no trip
+    */
+    public Pair<Pair<Station, Station>, Double> getLongestTrip() {return longestTrip;}
+
+   /**
+    * Return the number of trips between two stations which are not possible anymore
+    * @return the number of pairs of start and end stations, which are different, with no way between them
+    */
+    public int getImpossibleTrips() {return impossibleTrips;}
+
+   /**
+    * Return the cost of the update to this version of the trafics
+    * @return the number of vertices settled, in all the searches, to reach this version (or for the first computation)
+    */
+    public int getUpdateCost() {return updateCost;}
+  }
+
+ /**
+  * Return the statistics of a city under its actual trafics, they are updated if the version of the trafics changed.
+  * Reading the statistics of an unchanged version takes no lock, and the updates of different cities are independent.
+  * @param city the city in which we want the statistics
+  * @return the statistics of the actual version of the trafics of the city, or null if the city isn't in the Configuration
+  */
+  public static Snapshot get(String city) {
+    WGraph<Station> initial = Trafics.getInitialGraph(city);
+    if (initial == null) return null;
+    // the version is read before the graph: if they don't match, the graph is newer and will be read again with the next version
+    long version = Trafics.getVersion(city);
+    Searches last = searches.get(city);
+    Snapshot snapshot = (last == null) ? null : last.snapshot;
+    if (snapshot != null && snapshot.initial == initial && snapshot.version == version) return snapshot;
+    synchronized (lock(city)) {
+      Searches s = searches.get(city);
+      if (s == null || s.initial != initial) {
+        s = new Searches(initial, version, Trafics.getGraph(city));
+        searches.put(city, s);
+      }
+      else if (s.version != version) s.update(version, Trafics.getGraph(city));
+      return s.snapshot;
+    }
+  }
+
+ /**
+  * Forget the searches of a city
+  * @param city the city which is unloaded
+  */
+  public static void evict(String city) {
+    synchronized (lock(city)) {
+      searches.remove(city);
+    }
+  }
+
+  private static Object lock(String city) {
+    return locks.computeIfAbsent(city, c -> new Object());
+  }
+
+}
@@ -43,6 +43,85 @@ public class MatriceWGraph{
         return this.intermediate;
     }
 
+    /**
+     * Returns a copy of the matrice direct stored in a flat array, the coefficient (x, y) being at the index x * n + y.
+     * @return the matrice direct as a flat array.
+     */
+    public double[] getFlatDirect(){
+        int n = this.direct.length;
+        double[] ret = new double[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++) ret[i * n + j] = this.direct[i][j];
+        }
+        return ret;
+    }
+
+    /**
+     * Returns a copy of the matrice intermediate stored in a flat array, the coefficient (x, y) being at the index x * n + y.
+     * @return the matrice intermediate as a flat array.
+     */
+    public int[] getFlatIntermediate(){
+        int n = this.intermediate.length;
+        int[] ret = new int[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++) ret[i * n + j] = this.intermediate[i][j];
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the stations that appear in the matrice via, the flat matrice via contains indices of this array.
+     * @return the stations of the matrice via.
+     */
+    public Station[] getViaStations(){
+        return this.viaStations().toArray(new Station[0]);
+    }
+
+    /**
+     * Returns a copy of the matrice via stored in a flat array, the coefficient (x, y) being at the index x * n + y.
+     * Every station is replaced by its index in {@link #getViaStations()}, and a missing station by -1.
+     * @return the matrice via as a flat array.
+     */
+    public int[] getFlatVia(){
+        ArrayList<Station> stations = this.viaStations();
+        HashMap<Station, Integer> index = new HashMap<Station, Integer>();
+        for(int i = 0; i < stations.size(); i++) index.put(stations.get(i), i);
+        int n = this.via.length;
+        int[] ret = new int[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++) ret[i * n + j] = (this.via[i][j] == null) ? -1 : index.get(this.via[i][j]);
+        }
+        return ret;
+    }
+
+    private ArrayList<Station> viaStations(){
+        LinkedHashSet<Station> set = new LinkedHashSet<Station>();
+        for(Station[] row : this.via){
+            for(Station s : row){
+                if(s != null) set.add(s);
+            }
+        }
+        return new ArrayList<Station>(set);
+    }
+
+    /**
+     * Replaces the three matrices by flat matrices, for example after executing {@link LimitedConnectionSearch#floyd(double[], int[], int[], int)} on them.
+     * @param flatDirect the new matrice direct as a flat array.
+     * @param flatVia the new matrice via as a flat array of indices in {@link #getViaStations()}.
+     * @param flatIntermediate the new matrice intermediate as a flat array.
+     */
+    public void setFlatMatrices(double[] flatDirect, int[] flatVia, int[] flatIntermediate){
+        Station[] stations = this.getViaStations();
+        int n = this.direct.length;
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                this.direct[i][j] = flatDirect[i * n + j];
+                this.via[i][j] = (flatVia[i * n + j] == -1) ? null : stations[flatVia[i * n + j]];
+                this.intermediate[i][j] = flatIntermediate[i * n + j];
+            }
+        }
+    }
+
     /**
      * Store all the name of the stations that are initiating a fork or a cycle.
      * @return an hashmap containing all the stations initiating a fork or a cycle
@@ -188,13 +267,20 @@ public class MatriceWGraph{
     }
 
     private static Double[][] initializeDirectLine(Double[][] d){
-        Double[][] copy = new Double[d.length][d.length];
-        for(int i = 0; i < copy.length; i++){
-            for(int j = 0; j < copy.length; j++){
-                copy[i][j] = d[i][j];
+        int n = d.length;
+        double[] flat = new double[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                flat[i * n + j] = d[i][j];
+            }
+        }
+        flat = LimitedConnectionSearch.parallelFloyd(flat, n);
+        Double[][] copy = new Double[n][n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                copy[i][j] = flat[i * n + j];
             }
         }
-        copy = LimitedConnectionSearch.floyd(copy);
         return copy;
     }
 
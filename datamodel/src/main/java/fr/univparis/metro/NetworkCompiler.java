@@ -0,0 +1,167 @@
+package fr.univparis.metro;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compiles the subway graph of a city to a binary file which can be loaded without parsing the metro plan.
+ * The file contains, in big-endian order:
+ * the magic number {@link #MAGIC}, the version {@link #FORMAT_VERSION}, the checksum of the metro plan,
+ * the number of stations n and of edges m, the n stations (name then line, as a short length followed by UTF-8 bytes),
+ * then the graph in CSR form (see {@link CSRGraph}): n + 1 offsets, m targets and m weights.
+ * A file whose magic number, version or checksum doesn't match is refused, so a stale file is never used.
+ */
+public class NetworkCompiler {
+
+  public static final int MAGIC = 0x4D455452; // "METR"
+  public static final int FORMAT_VERSION = 1;
+
+ /**
+  * Returns the checksum of a metro plan, stored in the compiled file to detect that the plan has changed
+  * @param plan the content of the metro plan
+  * @return the checksum of the metro plan
+  */
+  public static long checksum(byte[] plan) {
+    CRC32 crc = new CRC32();
+    crc.update(plan);
+    return crc.getValue();
+  }
+
+ /**
+  * Returns the file in which the compiled graph of a metro plan is stored.
+  * The directory is given by the system property metro.compiled, "compiled" by default.
+  * @param metroPlan the name of the file of the metro plan
+  * @return the file in which the compiled graph of the metro plan is stored
+  */
+  public static File compiledFile(String metroPlan) {
+    String name = metroPlan.endsWith(".txt") ? metroPlan.substring(0, metroPlan.length() - 4) : metroPlan;
+    return new File(System.getProperty("metro.compiled", "compiled"), name + ".bin");
+  }
+
+ /**
+  * Writes a graph to a binary file
+  * @param g the graph to compile
+  * @param checksum the checksum of the metro plan from which g has been parsed
+  * @param out the file in which the graph is written
+  * @throws IOException if the file can't be written
+  */
+  public static void compile(WGraph<Station> g, long checksum, File out) throws IOException {
+    CSRGraph<Station> csr = new CSRGraph<Station>(g);
+    int n = csr.nbVertex();
+    int m = csr.nbEdge();
+    try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)))) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(FORMAT_VERSION);
+      dos.writeLong(checksum);
+      dos.writeInt(n);
+      dos.writeInt(m);
+      for (int i = 0; i < n; i++) {
+        writeString(dos, csr.vertex(i).getName());
+        writeString(dos, csr.vertex(i).getLine());
+      }
+      for (int o : csr.getOffsets()) dos.writeInt(o);
+      for (int t : csr.getTargets()) dos.writeInt(t);
+      for (double w : csr.getWeights()) dos.writeDouble(w);
+    }
+  }
+
+  private static void writeString(DataOutputStream dos, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    dos.writeShort(bytes.length);
+    dos.write(bytes);
+  }
+
+ /**
+  * Loads a graph from a binary file written by {@link #compile(WGraph, long, File)}.
+  * The file is memory-mapped, and the stations are interned in the given registry.
+  * The arrays of the file are not served as they are: a {@link WGraph} is rebuilt from them, since the {@link Trafics} layer
+  * their perturbations over it and the algorithms look its vertices up by station. What is saved is the parsing of the text,
+  * most of the time left is spent decoding and interning the stations, not building the graph.
+  * @param in the compiled file
+  * @param checksum the checksum of the metro plan, the file is refused if it was compiled from another plan
+  * @param registry the registry in which the stations are interned
+  * @return the graph stored in the file
+  * @throws IOException if the file can't be read, is corrupted, or doesn't match the version or the checksum
+  */
+  public static WGraph<Station> load(File in, long checksum, StationRegistry registry) throws IOException {
+    ByteBuffer buf;
+    try (RandomAccessFile raf = new RandomAccessFile(in, "r"); FileChannel channel = raf.getChannel()) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buf.getInt() != MAGIC) throw new IOException(in + " is not a compiled network");
+      int version = buf.getInt();
+      if (version != FORMAT_VERSION) throw new IOException(in + " has version " + version + " instead of " + FORMAT_VERSION);
+      if (buf.getLong() != checksum) throw new IOException(in + " was compiled from another metro plan");
+      int n = buf.getInt();
+      int m = buf.getInt();
+      if (n < 0 || m < 0) throw new IOException(in + " is corrupted");
+
+      Station[] stations = new Station[n];
+      WGraph<Station> g = new WGraph<Station>();
+      for (int i = 0; i < n; i++) {
+        String name = readString(buf);
+        stations[i] = registry.intern(name, readString(buf));
+        g.addVertex(stations[i]);
+      }
+      int[] offsets = new int[n + 1];
+      buf.asIntBuffer().get(offsets);
+      buf.position(buf.position() + 4 * (n + 1));
+      int[] targets = new int[m];
+      buf.asIntBuffer().get(targets);
+      buf.position(buf.position() + 4 * m);
+      for (int i = 0; i < n; i++) {
+        for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+          g.addEdge(stations[i], stations[targets[e]], buf.getDouble());
+        }
+      }
+      return g;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException(in + " is corrupted", e);
+    }
+  }
+
+  private static String readString(ByteBuffer buf) {
+    byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+ /**
+  * Compiles the graphs of the cities given as parameters, or of every city if there is none
+  * @param args the cities to compile
+  * @throws IOException if a file can't be written
+  */
+  public static void main(String[] args) throws IOException {
+    Configuration.loadFrom(NetworkCompiler.class.getResourceAsStream("/cities.json"));
+    String[] cities = (args.length > 0) ? args : Configuration.getCitiesName().toArray(new String[0]);
+    for (String city : cities) {
+      String metroPlan = Configuration.getFileName(city);
+      if (metroPlan == null) {
+        System.out.println("Unknown city " + city);
+        continue;
+      }
+      byte[] plan;
+      try (InputStream is = NetworkCompiler.class.getResourceAsStream("/" + metroPlan)) {
+        plan = IOUtils.toByteArray(is);
+      }
+      File out = compiledFile(metroPlan);
+      out.getAbsoluteFile().getParentFile().mkdirs();
+      compile(Parser.loadFrom(new ByteArrayInputStream(plan)), checksum(plan), out);
+      System.out.println(city + " compiled to " + out);
+    }
+  }
+
+}
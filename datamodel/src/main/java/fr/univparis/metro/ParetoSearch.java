@@ -0,0 +1,122 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.function.BiPredicate;
+
+/**
+ * Functional class where a multi-criteria search on the time and the number of correspondances is implemented.
+ * A single label-setting search gives every itinerary which is not beaten on both criteria by another one (the Pareto front),
+ * so the fastest itinerary, the one with the fewest correspondances and every trade-off between them are found at once.
+ * Correspondances are counted as in {@link BouarahAlgorithm}: every edge between two vertices that are not equivalent is one correspondance.
+ */
+public class ParetoSearch {
+
+  /**
+   * An itinerary ending at a vertex, with its time and its number of correspondances
+   * @param <T> the type of the vertex
+   */
+  public static class Label<T> {
+    private final T vertex;
+    private final int transfers;
+    private final double time;
+    private final Label<T> parent;
+
+    private Label(T vertex, int transfers, double time, Label<T> parent) {
+      this.vertex = vertex;
+      this.transfers = transfers;
+      this.time = time;
+      this.parent = parent;
+    }
+
+   /**
+    * Returns the last vertex of the itinerary
+    * @return the last vertex of the itinerary
+    */
+    public T getVertex() {return vertex;}
+
+   /**
+    * Returns the number of correspondances of the itinerary
+    * @return the number of correspondances of the itinerary
+    */
+    public int getTransfers() {return transfers;}
+
+   /**
+    * Returns the time of the itinerary
+    * @return the time of the itinerary
+    */
+    public double getTime() {return time;}
+
+   /**
+    * Returns the vertices of the itinerary, from the start to {@link #getVertex()}
+    * @return the vertices of the itinerary
+    */
+    public LinkedList<T> getPath() {
+      LinkedList<T> res = new LinkedList<T>();
+      for (Label<T> l = this; l != null; l = l.parent) res.addFirst(l.vertex);
+      return res;
+    }
+  }
+
+ /**
+  * Returns the Pareto front of the itineraries between two vertices.
+  * @param graph               A weighted and oriented graph
+  * @param start               The starting vertex
+  * @param target              The vertex we want to reach
+  * @param equivalenceRelation An equivalence relation, there is a correspondance between two vertices that are not equivalent
+  * @param <T>                 The type of vertices
+  * @return the itineraries of the front sorted by increasing number of correspondances (and decreasing time),
+  *         the first one has the fewest correspondances and the last one is the fastest. It is empty if there is no path.
+  */
+  public static <T> ArrayList<Label<T>> front(WGraph<T> graph, T start, T target, BiPredicate<T,T> equivalenceRelation) {
+    return front(graph, start, target, equivalenceRelation, Integer.MAX_VALUE);
+  }
+
+ /**
+  * Returns the Pareto front of the itineraries between two vertices with at most maxTransfers correspondances.
+  * @param graph               A weighted and oriented graph
+  * @param start               The starting vertex
+  * @param target              The vertex we want to reach
+  * @param equivalenceRelation An equivalence relation, there is a correspondance between two vertices that are not equivalent
+  * @param maxTransfers        The maximum number of correspondances of the itineraries
+  * @param <T>                 The type of vertices
+  * @return the itineraries of the front sorted by increasing number of correspondances (and decreasing time),
+  *         the first one has the fewest correspondances and the last one is the fastest. It is empty if there is no path.
+  */
+  public static <T> ArrayList<Label<T>> front(WGraph<T> graph, T start, T target, BiPredicate<T,T> equivalenceRelation, int maxTransfers) {
+    ArrayList<Label<T>> res = new ArrayList<Label<T>>();
+    if (! graph.containsVertex(start)) return res;
+    // labels are settled by increasing time, then by increasing number of correspondances
+    java.util.PriorityQueue<Label<T>> queue = new java.util.PriorityQueue<Label<T>>(
+      Comparator.<Label<T>>comparingDouble(l -> l.time).thenComparingInt(l -> l.transfers));
+    // the lowest number of correspondances of the labels settled at every vertex:
+    // a new label is only on the front if it has fewer correspondances since it can't be faster
+    HashMap<T, Integer> minTransfers = new HashMap<T, Integer>();
+    queue.add(new Label<T>(start, 0, 0., null));
+
+    while (! queue.isEmpty()) {
+      Label<T> l = queue.poll();
+      Integer min = minTransfers.get(l.vertex);
+      if (min != null && min <= l.transfers) continue;
+      minTransfers.put(l.vertex, l.transfers);
+      if (l.vertex.equals(target)) {
+        res.add(0, l);
+        if (l.transfers == 0) break;
+        continue;
+      }
+      for (T n : graph.neighbors(l.vertex)) {
+        double time = l.time + graph.weight(l.vertex, n);
+        if (time == Double.POSITIVE_INFINITY) continue;
+        int transfers = equivalenceRelation.test(l.vertex, n) ? l.transfers : l.transfers + 1;
+        if (transfers > maxTransfers) continue;
+        Integer minN = minTransfers.get(n);
+        if (minN != null && minN <= transfers) continue;
+        queue.add(new Label<T>(n, transfers, time, l));
+      }
+    }
+    return res;
+  }
+
+}
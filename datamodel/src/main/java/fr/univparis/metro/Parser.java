@@ -43,12 +43,24 @@ public class Parser {
   * @return the WGraph that correspond to the file
   */
   public static WGraph<Station> loadFrom (InputStream is) {
+    return loadFrom(is, new StationRegistry());
+  }
+
+ /**
+  * Create a WGraph using a text file with stations on each line, every station of the graph is interned by registry
+  * In station change are weighted by {@link #defaultChangeStationWeight}
+  * Weight between station is {@link #defaultWeight}
+  * @param is is the txt file wich contain the station
+  * @param registry the registry interning the stations of the network
+  * @return the WGraph that correspond to the file
+  */
+  public static WGraph<Station> loadFrom (InputStream is, StationRegistry registry) {
     Scanner sc = new Scanner (is);
     WGraph<Station> g = new WGraph<Station>();
     Station prec = null;
     String s;
     String line = "";
-    HashSet<String> createdStation = new HashSet<String>();
+    HashMap<String, HashSet<Station>> createdStation = new HashMap<String, HashSet<Station>>();
     while (sc.hasNextLine()) {
       s = sc.nextLine();
       if (s.isEmpty()) continue;
@@ -57,12 +69,12 @@ public class Parser {
         line = "";
         prec = null;
       }
-      else if (s.equals("{")) prec = cycle(g, sc, prec, line, createdStation);
-      else if (s.equals("[")) prec = fork (g, sc, prec, line, createdStation);
+      else if (s.equals("{")) prec = cycle(g, sc, prec, line, createdStation, registry);
+      else if (s.equals("[")) prec = fork (g, sc, prec, line, createdStation, registry);
       else if (s.equals("}")) throw new IllegalStateException("Can't close a cycle if there isn't an open one");
       else if (s.equals("]")) throw new IllegalStateException("Can't close a fork if there isn't an open one");
       else if (s.equals("/")) throw new IllegalStateException("There isn't an open cycle for character \"/\"");
-      else prec = addNextStation(g, prec, s, line, true, true, createdStation);
+      else prec = addNextStation(g, prec, s, line, true, true, createdStation, registry);
     }
 
     return g;
@@ -76,16 +88,17 @@ public class Parser {
   * @param sc The Scanner with stations on every line
   * @param start The station before the fork, if it's null then the line is starting by a fork
   * @param line the line in wich the fork is
-  * @param createdStation a Set to know wich Station has already been created (juste name of the station)
+  * @param createdStation the stations of the graph (but the meta stations) indexed by their name without the "$1" or "$2" of the splits
+  * @param registry the registry interning the stations
   * @return null if the fork ends the line or the station that linked the two branch
   */
-  private static Station fork(WGraph<Station> g, Scanner sc, Station start, String line, HashSet<String> createdStation) {
+  private static Station fork(WGraph<Station> g, Scanner sc, Station start, String line, HashMap<String, HashSet<Station>> createdStation, StationRegistry registry) {
     String s;
     Station endOfFirst = start;
     if (start != null){
-      g.splitVertex(start, new Station(start.getName() + "$1", start.getLine()), new Station(start.getName() + "$2", start.getLine()));
-      g.addEdge(new Station(start.getName() + "$1", start.getLine()), new Station(start.getName() + "$2", start.getLine()), defaultChangeStationWeight);
-      g.addEdge(new Station(start.getName() + "$2", start.getLine()), new Station(start.getName() + "$1", start.getLine()), defaultChangeStationWeight);
+      split(g, start, createdStation, registry);
+      g.addEdge(registry.intern(start.getName() + "$1", start.getLine()), registry.intern(start.getName() + "$2", start.getLine()), defaultChangeStationWeight);
+      g.addEdge(registry.intern(start.getName() + "$2", start.getLine()), registry.intern(start.getName() + "$1", start.getLine()), defaultChangeStationWeight);
     }
 
     Station prec = start;
@@ -97,14 +110,14 @@ public class Parser {
         endOfFirst = prec;
         prec = start;
       }
-      else if (s.equals("[")) fork(g, sc, prec, line, createdStation);
-      else if (s.equals("{")) cycle(g, sc, prec, line, createdStation);
+      else if (s.equals("[")) fork(g, sc, prec, line, createdStation, registry);
+      else if (s.equals("{")) cycle(g, sc, prec, line, createdStation, registry);
       else{
         boolean b = prec == start && start != null;
-        prec = addNextStation(g, prec, s, line, true, true, createdStation);
+        prec = addNextStation(g, prec, s, line, true, true, createdStation, registry);
         if (b) {
-          g.removeEdge(new Station(start.getName() + "$1", start.getLine()), prec);
-          g.removeEdge(prec, new Station(start.getName() + "$2", start.getLine()));
+          g.removeEdge(registry.intern(start.getName() + "$1", start.getLine()), prec);
+          g.removeEdge(prec, registry.intern(start.getName() + "$2", start.getLine()));
         }
       }
     }
@@ -113,12 +126,12 @@ public class Parser {
       if (!sc.hasNextLine()) throw new IllegalStateException();
       s = sc.nextLine();
       if (s.isEmpty()) continue;
-      addNextStation(g, endOfFirst, s + "$1", line, true, true, createdStation);
-      addNextStation(g, prec, s + "$2", line, true, true, createdStation);
+      addNextStation(g, endOfFirst, s + "$1", line, true, true, createdStation, registry);
+      addNextStation(g, prec, s + "$2", line, true, true, createdStation, registry);
 
       break;
     } while (sc.hasNextLine());
-    return new Station(s, line);
+    return registry.intern(s, line);
   }
 
 
@@ -131,14 +144,15 @@ public class Parser {
   * @param sc The Scanner with stations on every line
   * @param start The station before the start of the cycle
   * @param line The line in wich the cycle is
-  * @param createdStation a Set to know wich Station has already been created (juste name of the station)
+  * @param createdStation the stations of the graph (but the meta stations) indexed by their name without the "$1" or "$2" of the splits
+  * @param registry the registry interning the stations
   * @return the station that is right after the end of the cycle
   */
-  private static Station cycle(WGraph<Station> g, Scanner sc, Station start, String line, HashSet<String> createdStation) {
+  private static Station cycle(WGraph<Station> g, Scanner sc, Station start, String line, HashMap<String, HashSet<Station>> createdStation, StationRegistry registry) {
     if (start == null) throw new IllegalStateException("Cycle can't start with a null station");
-    g.splitVertex(start, new Station(start.getName() + "$1", start.getLine()), new Station(start.getName() + "$2", start.getLine()));
-    g.addEdge(new Station(start.getName() + "$1", start.getLine()), new Station(start.getName() + "$2", start.getLine()), defaultChangeStationWeight);
-    g.addEdge(new Station(start.getName() + "$2", start.getLine()), new Station(start.getName() + "$1", start.getLine()), defaultChangeStationWeight);
+    split(g, start, createdStation, registry);
+    g.addEdge(registry.intern(start.getName() + "$1", start.getLine()), registry.intern(start.getName() + "$2", start.getLine()), defaultChangeStationWeight);
+    g.addEdge(registry.intern(start.getName() + "$2", start.getLine()), registry.intern(start.getName() + "$1", start.getLine()), defaultChangeStationWeight);
     String s;
     Station endOfFirst = start;
     Station prec = start;
@@ -152,15 +166,15 @@ public class Parser {
         endOfFirst = prec;
         prec = start;
       }
-      else if (s.equals("{")) cycle(g, sc, prec, line, createdStation);
-      else if (s.equals("[")) fork(g, sc, prec, line, createdStation);
+      else if (s.equals("{")) cycle(g, sc, prec, line, createdStation, registry);
+      else if (s.equals("[")) fork(g, sc, prec, line, createdStation, registry);
       else if (s.equals("}")) break;
       else{
         boolean b = (prec == start);
-        prec = addNextStation(g, prec, s, line, !comeback, comeback, createdStation);
+        prec = addNextStation(g, prec, s, line, !comeback, comeback, createdStation, registry);
         if (b) {
-          g.removeEdge(new Station(start.getName() + "$1", start.getLine()), prec);
-          g.removeEdge(prec , new Station(start.getName() + "$2", start.getLine()));
+          g.removeEdge(registry.intern(start.getName() + "$1", start.getLine()), prec);
+          g.removeEdge(prec , registry.intern(start.getName() + "$2", start.getLine()));
         }
       }
     }
@@ -169,11 +183,11 @@ public class Parser {
       if (!sc.hasNextLine()) throw new IllegalStateException();
       s = sc.nextLine();
       if (s.isEmpty()) continue;
-      addNextStation(g, endOfFirst, s + "$1", line, true, false, createdStation);
-      addNextStation(g, prec, s + "$2", line, false, true, createdStation);
+      addNextStation(g, endOfFirst, s + "$1", line, true, false, createdStation, registry);
+      addNextStation(g, prec, s + "$2", line, false, true, createdStation, registry);
       break;
     } while (sc.hasNextLine());
-    return new Station(s, line);
+    return registry.intern(s, line);
 
   }
 
@@ -187,46 +201,72 @@ public class Parser {
   * @param line The line of the added Station
   * @param ahead True if we want to add an edge that start at prec and goes to the created station
   * @param behind True if we want to add an edge that start at the created station and goes to prec
-  * @param createdStation The set of the station already created, to know if we should add in station Edge
+  * @param createdStation The stations already created indexed by their name, to know if we should add in station Edge and between which stations
+  * @param registry the registry interning the stations
   * @return The new Station(s, line)
   */
-  private static Station addNextStation(WGraph<Station> g, Station prec, String s, String line, boolean ahead, boolean behind, HashSet<String> createdStation) {
-    Station act = new Station(s, line);
+  private static Station addNextStation(WGraph<Station> g, Station prec, String s, String line, boolean ahead, boolean behind, HashMap<String, HashSet<Station>> createdStation, StationRegistry registry) {
+    Station act = registry.intern(s, line);
     g.addVertex(act);
     if (ahead && prec != null) {
       if (g.containsVertex(prec)) g.addEdge(prec, act, defaultWeight);
       else {
-        g.addEdge(new Station(prec.getName() + "$1", prec.getLine()), act, defaultWeight);
-        g.addEdge(new Station(prec.getName() + "$2", prec.getLine()), act, defaultWeight);
+        g.addEdge(registry.intern(prec.getName() + "$1", prec.getLine()), act, defaultWeight);
+        g.addEdge(registry.intern(prec.getName() + "$2", prec.getLine()), act, defaultWeight);
       }
 
     }
     if (behind && prec != null) {
       if (g.containsVertex(prec)) g.addEdge(act, prec, defaultWeight);
       else {
-        g.addEdge(act, new Station(prec.getName() + "$1", prec.getLine()), defaultWeight);
-        g.addEdge(act, new Station(prec.getName() + "$2", prec.getLine()), defaultWeight);
+        g.addEdge(act, registry.intern(prec.getName() + "$1", prec.getLine()), defaultWeight);
+        g.addEdge(act, registry.intern(prec.getName() + "$2", prec.getLine()), defaultWeight);
       }
     }
 
-    addMetaStationAndChanging(g, act, createdStation, s);
+    addMetaStationAndChanging(g, act, createdStation, s, registry);
     return act;
   }
 
-  private static void addMetaStationAndChanging(WGraph<Station> g, Station act, HashSet<String> createdStation, String s) {
+  /**
+  * Split a station in two stations named with "$1" and "$2" and update the index of the stations
+  */
+  private static void split(WGraph<Station> g, Station start, HashMap<String, HashSet<Station>> createdStation, StationRegistry registry) {
+    Station s1 = registry.intern(start.getName() + "$1", start.getLine());
+    Station s2 = registry.intern(start.getName() + "$2", start.getLine());
+    g.splitVertex(start, s1, s2);
+    HashSet<Station> sameName = createdStation.get(baseName(start.getName()));
+    sameName.remove(start);
+    sameName.add(s1);
+    sameName.add(s2);
+  }
+
+  /**
+  * Return the name of a station without the "$1" or "$2" of the splits
+  */
+  private static String baseName(String s) {
+    int i = s.indexOf('$');
+    return (i == -1) ? s : s.substring(0, i);
+  }
+
+  private static void addMetaStationAndChanging(WGraph<Station> g, Station act, HashMap<String, HashSet<Station>> createdStation, String s, StationRegistry registry) {
     boolean isASplit = s.contains("$");
     String name = (isASplit) ? s.substring(0, s.length() - 2) : s;
-    if (! createdStation.contains(name)) {
-      g.addVertex(new Station(name, "Meta Station Start"));
-      g.addVertex(new Station(name, "Meta Station End"));
-      createdStation.add(name);
+    if (! createdStation.containsKey(name)) {
+      g.addVertex(registry.intern(name, "Meta Station Start"));
+      g.addVertex(registry.intern(name, "Meta Station End"));
+      createdStation.put(name, new HashSet<Station>());
     }
     else {
-      g.addDoubleEdge(act, defaultChangeStationWeight, (t -> (t.getName().equals(name) || t.getName().startsWith(name + "$")) && !t.getLine().startsWith("Meta Station")));
+      for (Station t : createdStation.get(name)) {
+        g.addEdge(act, t, defaultChangeStationWeight);
+        g.addEdge(t, act, defaultChangeStationWeight);
+      }
     }
+    createdStation.get(name).add(act);
 
-    g.addEdge(new Station(name, "Meta Station Start"), act, 0.0);
-    g.addEdge(act, new Station(name, "Meta Station End"), 0.0);
+    g.addEdge(registry.intern(name, "Meta Station Start"), act, 0.0);
+    g.addEdge(act, registry.intern(name, "Meta Station End"), 0.0);
   }
 
 }
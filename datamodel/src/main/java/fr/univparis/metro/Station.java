@@ -2,12 +2,17 @@ package fr.univparis.metro;
 
 import java.util.Objects;
 /**
- * Representation of a subway station by a name and a line
+ * Representation of a subway station by a name and a line.
+ * The hash of a station is computed once, and stations interned by a {@link StationRegistry} also have a dense integer id.
  */
 public class Station {
 
     private final String name;
     private final String line;
+    private final int hash;
+    private final boolean meta;
+    private final int id;
+    private final StationRegistry registry;
 
     /**
      * Create a station name n in the line l
@@ -16,10 +21,25 @@ public class Station {
      * @return The station named n in the line l
      */
     Station(String n, String l) {
+	this(n, l, -1, null);
+    }
+
+    /**
+     * Create a station name n in the line l interned by a registry
+     * @param n The name of the station
+     * @param l The line of the station
+     * @param id The id of the station in the registry
+     * @param registry The registry which interned the station
+     */
+    Station(String n, String l, int id, StationRegistry registry) {
 	if (l == null || l.isEmpty() || n == null || n.isEmpty())
 	  throw new IllegalArgumentException("Station name and line can't be null or empty" + n + l);
 	name = n;
 	line = l;
+	hash = Objects.hash(line, name);
+	meta = l.startsWith("Meta Station");
+	this.id = id;
+	this.registry = registry;
     }
 
     /**
@@ -34,6 +54,18 @@ public class Station {
      */
     public String getLine() {return line;}
 
+    /**
+     * Return the id of the station in the registry which interned it
+     * @return the id of the station, or -1 if it has not been interned by a {@link StationRegistry}
+     */
+    public int getId() {return id;}
+
+    /**
+     * Return true if the station is a meta station (start or end)
+     * @return true if and only if the line of the station starts with "Meta Station"
+     */
+    public boolean isMeta() {return meta;}
+
     @Override
     /**
     * Return the description of the station
@@ -49,7 +81,7 @@ public class Station {
     * @return the hashing value of the station
     */
     public int hashCode() {
-	return Objects.hash(line, name);
+	return hash;
     }
 
     @Override
@@ -66,7 +98,10 @@ public class Station {
 	if (getClass() != obj.getClass())
 	    return false;
 	Station other = (Station) obj;
-	return Objects.equals(line, other.line) && Objects.equals(name, other.name);
+	// a registry never interns two equal stations
+	if (registry != null && registry == other.registry)
+	    return false;
+	return hash == other.hash && line.equals(other.line) && name.equals(other.name);
     }
 
     /**
@@ -75,4 +110,15 @@ public class Station {
      * @return true if and only if s.name.equals(name)
      */
     public boolean sameName(Station s) {return s.name.equals(name);}
+
+    /**
+     * Return true if there is no correspondance between two stations, that is to say if they are on the same line or one of them is a meta station.
+     * It can be used as the equivalence relation of {@link BouarahAlgorithm}.
+     * @param s1 The first station
+     * @param s2 The second station
+     * @return true if and only if s1 and s2 are on the same line or one of them is a meta station
+     */
+    public static boolean sameLine(Station s1, Station s2) {
+	return s1.meta || s2.meta || s1.line.equals(s2.line);
+    }
 }
@@ -0,0 +1,73 @@
+package fr.univparis.metro;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Interns the stations of a network: there is only one instance of every station, with a dense integer id.
+ * The comparison of two stations interned by the same registry is a reference comparison.
+ */
+public class StationRegistry {
+
+  private final HashMap<Station, Station> stations;
+  private final ArrayList<Station> byId;
+
+ /**
+  * Creates an empty registry
+  */
+  public StationRegistry() {
+    stations = new HashMap<Station, Station>();
+    byId = new ArrayList<Station>();
+  }
+
+ /**
+  * Returns the interned station named name in the line line, it is created if it doesn't exist yet
+  * @param name the name of the station
+  * @param line the line of the station
+  * @return the unique instance of the station in this registry
+  */
+  public synchronized Station intern(String name, String line) {
+    Station s = stations.get(new Station(name, line));
+    if (s == null) {
+      s = new Station(name, line.intern(), byId.size(), this);
+      stations.put(s, s);
+      byId.add(s);
+    }
+    return s;
+  }
+
+ /**
+  * Returns the interned station equal to s, it is created if it doesn't exist yet
+  * @param s the station we want to intern
+  * @return the unique instance of the station in this registry
+  */
+  public Station intern(Station s) {
+    return intern(s.getName(), s.getLine());
+  }
+
+ /**
+  * Returns the interned station named name in the line line without creating it
+  * @param name the name of the station
+  * @param line the line of the station
+  * @return the unique instance of the station in this registry, or a station which is not interned if there is none
+  */
+  public synchronized Station lookup(String name, String line) {
+    Station s = new Station(name, line);
+    Station res = stations.get(s);
+    return (res == null) ? s : res;
+  }
+
+ /**
+  * Returns the station whose id is id
+  * @param id the id of the station
+  * @return the station whose id is id
+  */
+  public synchronized Station get(int id) {return byId.get(id);}
+
+ /**
+  * Returns the number of stations interned
+  * @return the number of stations interned
+  */
+  public synchronized int size() {return byId.size();}
+
+}
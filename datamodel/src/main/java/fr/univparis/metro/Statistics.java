@@ -1,5 +1,10 @@
 package fr.univparis.metro;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Predicate;
 import java.util.function.BiPredicate;
 
@@ -11,7 +16,8 @@ import java.util.function.BiPredicate;
 public class Statistics{
 
   /**
-  * This function give the two stations the more distant on a network
+  * This function give the two stations the more distant on a network.
+  * The searches from the different sources are independent, they are run in parallel in the common ForkJoinPool.
   * @param g the graph representing the network
   * @param p1 is the predicate to applicate Dijkstra to an element of the graph
   * @param p2 is the predicate to comparate the weight between two elements of the graph
@@ -19,25 +25,104 @@ public class Statistics{
   * @return a pair of pair of elements and the weight between these two elements which are the two elements the more distant on the graph
   */
   public static <T> Pair<Pair<T, T>, Double> mostDistantStations(WGraph<T> g, Predicate<T> p1, Predicate<T> p2){
-    Double biggestTime = 0.;
-    Pair<T, T> stations = new Pair<T,T>(null, null);
-    Pair<Pair<T, T>, Double> res;
-    HashMap<T, T> prev = new HashMap<T, T>();
-    HashMap<T, Double> dist = new HashMap<T, Double>();
-    for( T s : g.getVertices()){
-      if(p1.test(s))continue;
-      Dijkstra.shortestPath(g, s, prev, dist);
-      for(T t : g.getVertices()){
-        if(p2.test(t) && dist.get(t) > biggestTime){
-          biggestTime = dist.get(t);
-          stations = new Pair<T, T>(s, t);
+    return mostDistantStations(g, p1, p2, ForkJoinPool.commonPool());
+  }
+
+  /**
+  * This function give the two stations the more distant on a network, the searches from the different sources are run in parallel in pool.
+  * The sources are split in tasks of a few sources, every task reuses its arrays and queue for all its searches, and the result is the same as a sequential search:
+  * in case of a tie, the pair found first in the order of the vertices of the {@link CSRGraph} of g is returned.
+  * @param g the graph representing the network, it must not be modified during the computation
+  * @param p1 is the predicate to applicate Dijkstra to an element of the graph
+  * @param p2 is the predicate to comparate the weight between two elements of the graph
+  * @param pool the pool running the searches
+  * @param <T> the type of the vertices
+  * @return a pair of pair of elements and the weight between these two elements which are the two elements the more distant on the graph
+  */
+  public static <T> Pair<Pair<T, T>, Double> mostDistantStations(WGraph<T> g, Predicate<T> p1, Predicate<T> p2, ForkJoinPool pool){
+    CSRGraph<T> c = new CSRGraph<T>(g);
+    int n = c.nbVertex();
+    // the predicates are only called by this thread
+    ArrayList<Integer> sources = new ArrayList<Integer>();
+    boolean[] target = new boolean[n];
+    for (int v = 0; v < n; v++) {
+      if (! p1.test(c.vertex(v))) sources.add(v);
+      target[v] = p2.test(c.vertex(v));
+    }
+    Farthest f = pool.invoke(new FarthestTask(c, sources, target, 0, sources.size()));
+    Pair<T, T> stations = (f.source < 0) ? new Pair<T, T>(null, null) : new Pair<T, T>(c.vertex(f.source), c.vertex(f.target));
+    return new Pair<Pair<T,T>, Double>(stations, f.time);
+  }
+
+  // The arrays and the queue used by the searches of a task
+  private static class Workspace {
+    final int[] prev;
+    final double[] dist;
+    final IntPriorityQueue queue;
+
+    Workspace(int n) {
+      prev = new int[n];
+      dist = new double[n];
+      queue = new IntPriorityQueue(n);
+    }
+  }
+
+  // The most distant pair found from some sources, source is -1 if no target is further than 0
+  private static class Farthest {
+    final int source;
+    final int target;
+    final double time;
+
+    Farthest(int source, int target, double time) {
+      this.source = source;
+      this.target = target;
+      this.time = time;
+    }
+
+    // the sources of this are before the sources of other, so this wins the ties
+    Farthest max(Farthest other) {
+      return (other.time > time) ? other : this;
+    }
+  }
+
+  // Searches from sources[from] to sources[to - 1], split in two halves run in parallel while there are more than THRESHOLD of them
+  private static class FarthestTask extends RecursiveTask<Farthest> {
+    private static final long serialVersionUID = 1L;
+    private static final int THRESHOLD = 8;
+    private final CSRGraph<?> c;
+    private final ArrayList<Integer> sources;
+    private final boolean[] target;
+    private final int from;
+    private final int to;
+
+    FarthestTask(CSRGraph<?> c, ArrayList<Integer> sources, boolean[] target, int from, int to) {
+      this.c = c;
+      this.sources = sources;
+      this.target = target;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Farthest compute() {
+      if (to - from > THRESHOLD) {
+        int middle = (from + to) / 2;
+        FarthestTask left = new FarthestTask(c, sources, target, from, middle);
+        left.fork();
+        Farthest right = new FarthestTask(c, sources, target, middle, to).compute();
+        return left.join().max(right);
+      }
+      Workspace w = new Workspace(target.length);
+      Farthest res = new Farthest(-1, -1, 0.);
+      for (int i = from; i < to; i++) {
+        int s = sources.get(i);
+        Dijkstra.shortestPath(c, s, w.prev, w.dist, w.queue);
+        for (int t = 0; t < target.length; t++) {
+          if (target[t] && w.dist[t] > res.time) res = new Farthest(s, t, w.dist[t]);
         }
       }
-      prev.clear();
-      dist.clear();
+      return res;
     }
-    res = new Pair<Pair<T,T>, Double>(stations, biggestTime);
-    return res;
   }
 
   /**
@@ -50,170 +135,220 @@ public class Statistics{
   * @return the number of minimum correspondence
   */
   public static <T> int minimumCorrespondence(WGraph<T> g, Predicate<T> start, Predicate<T> end, BiPredicate<T, T> p) {
+    return minimumCorrespondenceWitness(g, start, end, p).getValue();
+  }
+
+  /**
+  * Return the minimum correspondence to go from any start vertex to any end vertex, with a pair of vertices which needs them.
+  * Every edge between two vertices that are not equivalent (according to p) is one correspondence, the edges with an infinite weight are ignored.
+  * The vertices which can be reached from each other without any correspondence (the stations of a line) are merged into one component,
+  * and a breadth-first search on the graph of the components, where an edge costs 0 or 1 correspondence, is run from every component
+  * following a start vertex: there are only a few of them (the lines), instead of a search for every start vertex and every limit.
+  * The pairs of vertices with no path between them are ignored.
+  * @param g the graph representing the network
+  * @param start indicates wich vertex are start vertex
+  * @param end indicates wich vertex are end vertex
+  * @param p indicates what is consider as a correspondence
+  * @param <T> the type of the vertices
+  * @return the start vertex and the end vertex of the first pair (in the order of the vertices of the {@link CSRGraph} of g) needing the most correspondences,
+  * and their number; (null, null) and 0 if no end vertex can be reached from a start vertex
+  */
+  public static <T> Pair<Pair<T, T>, Integer> minimumCorrespondenceWitness(WGraph<T> g, Predicate<T> start, Predicate<T> end, BiPredicate<T, T> p) {
+    CSRGraph<T> c = new CSRGraph<T>(g);
+    int n = c.nbVertex();
+    int[] offsets = c.getOffsets();
+    int[] targets = c.getTargets();
+    double[] weights = c.getWeights();
+    // the cost of every edge: 0 or 1 correspondence, -1 if the edge is shut down
+    int[] cost = new int[targets.length];
+    for (int u = 0; u < n; u++) {
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+        if (weights[e] == Double.POSITIVE_INFINITY) cost[e] = -1;
+        else cost[e] = p.test(c.vertex(u), c.vertex(targets[e])) ? 0 : 1;
+      }
+    }
+    int[] comp = components(c, cost);
+    int nbComp = 0;
+    for (int x : comp) nbComp = Math.max(nbComp, x + 1);
+
+    // the graph of the components, without the edges inside a component
+    ArrayList<ArrayList<int[]>> next = new ArrayList<ArrayList<int[]>>();
+    for (int x = 0; x < nbComp; x++) next.add(new ArrayList<int[]>());
+    for (int u = 0; u < n; u++) {
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+        if (cost[e] >= 0 && comp[u] != comp[targets[e]]) next.get(comp[u]).add(new int[] {comp[targets[e]], cost[e]});
+      }
+    }
+
+    ArrayList<Integer> starts = new ArrayList<Integer>();
+    ArrayList<Integer> ends = new ArrayList<Integer>();
+    for (int v = 0; v < n; v++) {
+      if (start.test(c.vertex(v))) starts.add(v);
+      if (end.test(c.vertex(v))) ends.add(v);
+    }
+    // the correspondences from every component following a start vertex
+    HashMap<Integer, int[]> from = new HashMap<Integer, int[]>();
+    for (int s : starts) {
+      for (int[] edge : next.get(comp[s])) from.computeIfAbsent(edge[0], x -> zeroOneBFS(next, x));
+    }
 
-    HashMap<Pair<T, Integer>, Pair<T, Integer>> prev = new HashMap<>();
-    HashMap<Pair<T, Integer>, Double> dist = new HashMap<>();
-
-    int limit = 0;
-    Pair<T, Integer> pair;
-    while (true) {
-      for (T s : g.getVertices()) {
-        if (! start.test(s)) continue;
-
-        BouarahAlgorithm.shortestPath(g, s, limit, p, prev, dist);
-
-        for (T e : g.getVertices()) {
-          if (! end.test(e)) continue;
-          boolean pathExist = false;
-          for(int i=0; i <= limit; i++) {
-            pair = new Pair<>(e, i);
-            if ( !dist.get(pair).equals(Double.POSITIVE_INFINITY)) {
-              pathExist = true;
-              break;
-            }
+    int best = -1;
+    Pair<T, T> witness = new Pair<T, T>(null, null);
+    for (int s : starts) {
+      for (int t : ends) {
+        int d = (comp[s] == comp[t]) ? 0 : Integer.MAX_VALUE;
+        for (int[] edge : next.get(comp[s])) {
+          int dx = from.get(edge[0])[comp[t]];
+          if (dx != Integer.MAX_VALUE) d = Math.min(d, edge[1] + dx);
+        }
+        if (d != Integer.MAX_VALUE && d > best) {
+          best = d;
+          witness = new Pair<T, T>(c.vertex(s), c.vertex(t));
+        }
+      }
+    }
+    return new Pair<Pair<T, T>, Integer>(witness, Math.max(best, 0));
+  }
+
+  // The strongly connected components of the edges without correspondence (Kosaraju), the component of every vertex
+  private static int[] components(CSRGraph<?> c, int[] cost) {
+    int n = c.nbVertex();
+    int[] offsets = c.getOffsets();
+    int[] targets = c.getTargets();
+    // the vertices by increasing finishing time of a depth-first search
+    int[] order = new int[n];
+    int finished = 0;
+    boolean[] seen = new boolean[n];
+    int[] stack = new int[n];
+    int[] nextEdge = new int[n];
+    for (int r = 0; r < n; r++) {
+      if (seen[r]) continue;
+      int top = 0;
+      stack[0] = r;
+      nextEdge[r] = offsets[r];
+      seen[r] = true;
+      while (top >= 0) {
+        int u = stack[top];
+        if (nextEdge[u] < offsets[u + 1]) {
+          int e = nextEdge[u]++;
+          int v = targets[e];
+          if (cost[e] == 0 && ! seen[v]) {
+            seen[v] = true;
+            nextEdge[v] = offsets[v];
+            stack[++top] = v;
           }
-          if( !pathExist) {
-            limit++;
-            break;
+        }
+        else {
+          order[finished++] = u;
+          top--;
+        }
+      }
+    }
+
+    // the reversed edges without correspondence
+    int[] rOffsets = new int[n + 1];
+    for (int u = 0; u < n; u++) {
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) if (cost[e] == 0) rOffsets[targets[e] + 1]++;
+    }
+    for (int v = 0; v < n; v++) rOffsets[v + 1] += rOffsets[v];
+    int[] rTargets = new int[rOffsets[n]];
+    int[] fill = Arrays.copyOf(rOffsets, n);
+    for (int u = 0; u < n; u++) {
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) if (cost[e] == 0) rTargets[fill[targets[e]]++] = u;
+    }
+
+    int[] comp = new int[n];
+    Arrays.fill(comp, -1);
+    int nbComp = 0;
+    for (int i = n - 1; i >= 0; i--) {
+      int r = order[i];
+      if (comp[r] >= 0) continue;
+      int top = 0;
+      stack[0] = r;
+      comp[r] = nbComp;
+      while (top >= 0) {
+        int u = stack[top--];
+        for (int k = rOffsets[u]; k < rOffsets[u + 1]; k++) {
+          int v = rTargets[k];
+          if (comp[v] < 0) {
+            comp[v] = nbComp;
+            stack[++top] = v;
           }
         }
       }
-      return limit;
+      nbComp++;
     }
+    return comp;
+  }
+
+  // The number of correspondences from a component to every component, Integer.MAX_VALUE if it can't be reached
+  private static int[] zeroOneBFS(ArrayList<ArrayList<int[]>> next, int source) {
+    int[] dist = new int[next.size()];
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    ArrayDeque<Integer> deque = new ArrayDeque<Integer>();
+    dist[source] = 0;
+    deque.add(source);
+    while (! deque.isEmpty()) {
+      int x = deque.poll();
+      for (int[] edge : next.get(x)) {
+        int d = dist[x] + edge[1];
+        if (d < dist[edge[0]]) {
+          dist[edge[0]] = d;
+          if (edge[1] == 0) deque.addFirst(edge[0]);
+          else deque.addLast(edge[0]);
+        }
+      }
+    }
+    return dist;
   }
 
   /**
-   * Return the line that has the more/less Station in it (excluding the Meta Line)
+   * Return the line that has the more/less Station in it (excluding the Meta Line), as given by {@link LineMetrics}
    * @param g the graph representing the network
    * @param max indicates if we want the line with the most station (max == true) or the line with the less (max  == false) station
    * @return the name of the line with the most/less station in it
    */
   public static String extremumLine(WGraph<Station> g, boolean max) {
-    HashMap<String, Integer> nbOfStation = new HashMap<String, Integer>();
-    for (Station st : g.getVertices()) {
-      if (st.getLine().startsWith("Meta Station")) continue;
-      if (nbOfStation.containsKey(st.getLine())) nbOfStation.put(st.getLine(), nbOfStation.get(st.getLine()) + 1);
-      else nbOfStation.put(st.getLine(), 1);
-    }
-    int extremum = (max) ? -1 : Integer.MAX_VALUE;
-    String res = null;
-    for (String line : nbOfStation.keySet()) {
-      int nb = nbOfStation.get(line);
-      if (max && nb > extremum) {
-        res = line;
-        extremum = nb;
-      }
-      else if (!max && nb < extremum) {
-        res = line;
-        extremum = nb;
-      }
-    }
-    return res;
+    return new LineMetrics(g).getExtremumLine(max);
   }
 
   /**
-    * Return the time average on each line
+    * Return the time average on each line, as given by {@link LineMetrics}
     * @param g the graph representing the network
     * @param res is an HashMap with a line associate with the time between the two extremum of it
     * @return the HashMap of the lines and their average time of travel
     */
   public static int averageTimeOnEachLine(WGraph<Station> g, HashMap<String, Double> res){
-        res.clear();
-        HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<Pair<Station, Integer>, Pair<Station, Integer>>();
-        HashMap<Pair<Station, Integer>, Double> dist = new HashMap<Pair<Station, Integer>, Double>();
-        String s = "";
-        double d = 0.;
-        int nb = 0;
-        for( Station st : g.getVertices()){
-          if (st.getLine().startsWith("Meta Station")) continue;
-          if(!res.containsKey(st.getLine())){
-            nb++;
-            s = st.getLine();
-            BouarahAlgorithm.shortestPath(g, st, 0, (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station") , prev, dist);
-            for( Station tt : g.getVertices() ){
-              if(tt.getLine().equals(s)){
-                Pair<Station, Integer> p = new Pair<Station, Integer>(tt, 0);
-                if(dist.get(p) > d) d = dist.get(p);
-              }
-            }
-            res.put(s, d);
-            d = 0.;
-          }
-          else{
-            s = st.getLine();
-            d = res.get(s);
-            BouarahAlgorithm.shortestPath(g, st, 0, (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station") , prev, dist);
-            for( Station tt : g.getVertices() ){
-              if(tt.getLine().equals(s)){
-                Pair<Station, Integer> p = new Pair<Station, Integer>(tt, 0);
-                if(dist.get(p) > d) d = dist.get(p);
-              }
-            }
-            if(res.get(s) < d)
-              res.put(s, d);
-            d = 0.;
-          }
-        }
-        for( String string : res.keySet() )
-            d += res.get(string);
-        return (int)d / nb;
-    }
-
+    LineMetrics m = new LineMetrics(g);
+    res.clear();
+    res.putAll(m.getTimes());
+    return m.getAverageTime();
+  }
 
     /**
-    * Return a Pair of a String and a Double corresponding to the shortest line in time and this time thanks to the statistic averageTimeOnEachLine and his parameter res.
+    * Return a Pair of a String and a Double corresponding to the shortest line in time and this time, as given by {@link LineMetrics}
     * @param g the graph representing the network
     * @return a Pair with the shortest line in time and his time of travel
     */
     public static Pair<String, Double> shortestTimeTravelLine(WGraph<Station> g){
-      HashMap<String, Double> res = new HashMap<String, Double>();
-      String shortest = "";
-      averageTimeOnEachLine(g, res);
-      Double d = Double.POSITIVE_INFINITY;
-      for(String s : res.keySet()){
-        if(res.get(s) < d){
-          d = res.get(s);
-          shortest = s;
-        }
-      }
-      Pair<String, Double> p = new Pair<String, Double>(shortest, d);
-      return p;
+      return new LineMetrics(g).getShortestLine();
     }
 
     /**
-    * Return a Pair of a String and a Double corresponding to the longest line in time and this time thanks to the statistic averageTimeOnEachLine and his parameter res.
+    * Return a Pair of a String and a Double corresponding to the longest line in time and this time, as given by {@link LineMetrics}
     * @param g the graph representing the network
     * @return a Pair with the longest line in time and his time of travel
     */
     public static Pair<String, Double> longestTimeTravelLine(WGraph<Station> g){
-      HashMap<String, Double> res = new HashMap<String, Double>();
-      String shortest = "";
-      averageTimeOnEachLine(g, res);
-
-      Double d = 0.;
-      for(String s : res.keySet()){
-        if(res.get(s) > d){
-          d = res.get(s);
-          shortest = s;
-        }
-      }
-      Pair<String, Double> p = new Pair<String, Double>(shortest, d);
-      return p;
+      return new LineMetrics(g).getLongestLine();
     }
 
     /**
-    * Return the average number of stations on the lines of the network
+    * Return the average number of stations on the lines of the network, as given by {@link LineMetrics}
     * @param g the graph representing the network
     * @return the average number of stations on the lines of the network
     */
   public static int averageNbOfStationPerLine(WGraph<Station> g){
-    HashMap<String, MatriceWGraph> h = MatriceWGraph.initializeAllLineGraphs(g);
-    int nbStation = 0;
-    int nbLine = 0;
-    for(String stationName : h.keySet()){
-      nbLine++;
-      nbStation += h.get(stationName).getDirect().length;
-    }
-    return (int) nbStation/nbLine;
+    return new LineMetrics(g).getAverageNbOfStations();
   }
 }
@@ -1,12 +1,25 @@
 package fr.univparis.metro;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.BiPredicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
 
 /**
  * Allows the set up of trafics pertubations.
+ * Every active perturbation of a city is a layer of factors over its original graph (see {@link LayeredWGraph}),
+ * so the weights never depend on the order in which perturbations are added or reverted.
+ * The trafics of a city are published as immutable snapshots: adding or reverting a perturbation builds a new view
+ * which then replaces the previous one, so the readers never take a lock and never see a graph being modified.
  */
 public class Trafics {
 
@@ -20,99 +33,355 @@ public class Trafics {
     ALL_TRAFICS_SLOW_DOWN;
   }
 
-  private static HashMap< String , WGraph<Station> > actualTrafics;
-  private static HashMap< String , WGraph<Station> > initialTrafics;
-  private static HashMap<String , HashMap<String , WGraph<Station>>> reverts;
+  /**
+   * The state of the trafics of a city. A state is never modified once it is published:
+   * every perturbation or revert builds a new state which replaces the old one in a single write,
+   * so a reader always sees a consistent graph, version and set of perturbations without taking any lock.
+   */
+  private static class State {
+    private final WGraph<Station> initial;
+    private final StationRegistry registry;
+    private final LineIndex lines;
+    private final LayeredWGraph<Station> actual;
+    private final Map<String, LayeredWGraph.Layer<Station>> perturbations;
+    private final long version;
+
+    private State(WGraph<Station> initial, StationRegistry registry, LineIndex lines, LayeredWGraph<Station> actual, Map<String, LayeredWGraph.Layer<Station>> perturbations) {
+      this.initial = initial;
+      this.registry = registry;
+      this.lines = lines;
+      this.actual = actual;
+      this.perturbations = Collections.unmodifiableMap(perturbations);
+      this.version = lastVersion.incrementAndGet();
+    }
+  }
+
+  private static final ConcurrentHashMap<String, State> states = new ConcurrentHashMap<String, State>();
+  // writers of a city are serialised on its lock, readers never take it
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+  private static final AtomicLong lastVersion = new AtomicLong();
+
+  // Returns the current state of a city, which is loaded if needed, or null if the city isn't in the Configuration
+  private static State state(String city) {
+    State st = states.get(city);
+    if (st == null && load(city)) st = states.get(city);
+    return st;
+  }
+
+  private static Object lock(String city) {
+    return locks.computeIfAbsent(city, c -> new Object());
+  }
 
  /**
-  * Return the subway graph of a city which might have been modified with perturbation
+  * Return the subway graph of a city which might have been modified with perturbation, the city is loaded if needed.
+  * The graph is a snapshot shared by every reader: it must not be modified, a perturbation publishes a new graph instead.
   * @param city the city which we want the graph
-  * @return the subway graph of the city
+  * @return the subway graph of the city, or null if the city isn't in the Configuration
   */
   public static WGraph<Station> getGraph(String city) {
-    return actualTrafics.get(city);
+    State st = state(city);
+    return (st == null) ? null : st.actual;
   }
 
  /**
-  * Return the original subway graph of a city (without any perturbation)
+  * Return the original subway graph of a city (without any perturbation), the city is loaded if needed.
+  * It must not be modified.
   * @param city the city which we want the original graph
-  * @return the original subway graph of the station
+  * @return the original subway graph of the station, or null if the city isn't in the Configuration
   */
   public static WGraph<Station> getInitialGraph(String city){
-    return initialTrafics.get(city);
+    State st = state(city);
+    return (st == null) ? null : st.initial;
+  }
+
+ /**
+  * Return the registry interning the stations of a city, the city is loaded if needed
+  * @param city the city which we want the registry
+  * @return the registry interning the stations of the city
+  */
+  public static StationRegistry getRegistry(String city) {
+    return state(city).registry;
+  }
+
+ /**
+  * Return the index of the lines of the original graph of a city, the city is loaded if needed
+  * @param city the city which we want the index
+  * @return the index of the lines of the city
+  */
+  public static LineIndex getLineIndex(String city) {
+    return state(city).lines;
   }
 
  /**
   * Return a set containing all the names of the perturbations
   * @param city the city in which we want the perturbation
-  * @return a set containing all the names of the perturbations
+  * @return an unmodifiable set containing all the names of the perturbations
   */
-  public static Set<String> getPerturbation(String city) {return reverts.get(city).keySet();}
+  public static Set<String> getPerturbation(String city) {
+    return state(city).perturbations.keySet();
+  }
 
  /**
-  * Return a set of cities that are in the model
+  * Return a set of cities that are in the model, whether they are loaded or not
   * @return a set of the cities that are in the model
   */
-  public static Set<String> getCities() {return actualTrafics.keySet();}
+  public static Set<String> getCities() {return Configuration.getCitiesName();}
+
+ /**
+  * Return the version of the trafics of a city.
+  * The version changes every time the graph of the city is modified by a perturbation or a revert,
+  * or when the city is loaded again after {@link #unload(String)}:
+  * two different states of the trafics never have the same version.
+  * @param city the city which we want the version
+  * @return the version of the trafics of the city
+  */
+  public static long getVersion(String city) {
+    return state(city).version;
+  }
 
  /**
-  * Initialize the trafics with files that are in Configuration
+  * Initialize the trafics with the cities that are in Configuration.
+  * No city is loaded here: a city is loaded on its first access, see {@link #load(String)}.
+  * The graph of a city is loaded from the file compiled by {@link NetworkCompiler} if it is up to date,
+  * the metro plan is parsed otherwise.
   * @see Configuration
   */
-  public static void initTrafics() {
-    actualTrafics = new HashMap< String , WGraph<Station> > ();
-    initialTrafics = new HashMap< String , WGraph<Station> > ();
-
-    reverts = new HashMap<String , HashMap<String , WGraph<Station>>> ();
-    for (String city : Configuration.getCitiesName()) {
-      InputStream i = Trafics.class.getResourceAsStream("/" + Configuration.getFileName(city));
-      initialTrafics.put(city, Parser.loadFrom(i));
-      actualTrafics.put(city, initialTrafics.get(city).clone());
-      reverts.put(city, new HashMap<String, WGraph<Station>>());
+  public static synchronized void initTrafics() {
+    states.clear();
+  }
+
+ /**
+  * Indicates if a city is loaded
+  * @param city the city
+  * @return true if and only if the graph of the city is in memory
+  */
+  public static boolean isLoaded(String city) {
+    return states.containsKey(city);
+  }
+
+ /**
+  * Load a city if it isn't loaded yet.
+  * It is called by every access to a city, so it is only needed to load a city in advance.
+  * @param city the city to load
+  * @return true if the city is loaded, false if it isn't in the Configuration
+  */
+  public static boolean load(String city) {
+    if (states.containsKey(city)) return true;
+    synchronized (Trafics.class) {
+      if (states.containsKey(city)) return true;
+      if (Configuration.getFileName(city) == null) return false;
+      Pair<WGraph<Station>, StationRegistry> network = loadNetwork(city);
+      WGraph<Station> initial = network.getObj();
+      StationRegistry registry = network.getValue();
+      states.put(city, new State(initial, registry, new LineIndex(initial), new LayeredWGraph<Station>(initial), new HashMap<String, LayeredWGraph.Layer<Station>>()));
+      return true;
     }
   }
 
+ /**
+  * Release the memory used by a city, it will be loaded again on its next access.
+  * A city with perturbations is not unloaded since they would be lost.
+  * @param city the city to unload
+  * @return true if the city is not loaded anymore, false if it has perturbations
+  */
+  public static boolean unload(String city) {
+    synchronized (lock(city)) {
+      State st = states.get(city);
+      if (st == null) return true;
+      if (! st.perturbations.isEmpty()) return false;
+      states.remove(city);
+    }
+    // outside of the lock: the caches call Trafics while holding their own lock
+    FloydCache.evict(city);
+    LandmarkCache.evict(city);
+    HierarchyCache.evict(city);
+    LiveStatistics.evict(city);
+    return true;
+  }
+
+  // Loads the compiled graph of the city if there is an up to date one, parses the metro plan otherwise
+  // Returns the graph and the registry in which its stations are interned
+  private static Pair<WGraph<Station>, StationRegistry> loadNetwork(String city) {
+    String metroPlan = Configuration.getFileName(city);
+    byte[] plan;
+    try (InputStream i = Trafics.class.getResourceAsStream("/" + metroPlan)) {
+      plan = IOUtils.toByteArray(i);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    long checksum = NetworkCompiler.checksum(plan);
+    File compiled = NetworkCompiler.compiledFile(metroPlan);
+    if (compiled.isFile()) {
+      StationRegistry registry = new StationRegistry();
+      try {
+        return new Pair<WGraph<Station>, StationRegistry>(NetworkCompiler.load(compiled, checksum, registry), registry);
+      } catch (IOException e) {
+        // the stations interned before the failure may not be in the network, so the registry is dropped
+        System.err.println(e.getMessage() + ", " + metroPlan + " is parsed instead");
+      }
+    }
+    StationRegistry registry = new StationRegistry();
+    return new Pair<WGraph<Station>, StationRegistry>(Parser.loadFrom(new ByteArrayInputStream(plan), registry), registry);
+  }
 
   /**
-  * Add a trafic perturbation
-  * The revert graph of this perturbation will be stored in {@link #reverts}
+  * A list of perturbations to add and to revert in a city at once, see {@link Trafics#applyBatch(String, Batch)}.
+  * The operations are applied in the order in which they have been added to the batch.
+  */
+  public static class Batch {
+    private final ArrayList<Pair<Perturbation, Object>> operations = new ArrayList<Pair<Perturbation, Object>>();
+
+   /**
+    * Adds a perturbation to the batch
+    * @param type the type of the perturbation
+    * @param parameter the parameter of the perturbation, as in {@link Trafics#addPerturbation(String, Perturbation, Object)}
+    * @return this batch
+    */
+    public Batch add(Perturbation type, Object parameter) {
+      if (type == null) throw new IllegalArgumentException();
+      operations.add(new Pair<Perturbation, Object>(type, parameter));
+      return this;
+    }
+
+   /**
+    * Adds the revert of a perturbation to the batch
+    * @param name the name of the perturbation
+    * @return this batch
+    */
+    public Batch revert(String name) {
+      operations.add(new Pair<Perturbation, Object>(null, name));
+      return this;
+    }
+
+   /**
+    * Returns the number of operations of the batch
+    * @return the number of operations of the batch
+    */
+    public int size() {return operations.size();}
+  }
+
+  /**
+  * The version and the perturbations of the trafics of a city as they have been published together,
+  * see {@link Trafics#applyBatch(String, Batch)}.
+  */
+  public static class Snapshot {
+    private final long version;
+    private final Set<String> perturbations;
+
+    private Snapshot(State st) {
+      this.version = st.version;
+      this.perturbations = st.perturbations.keySet();
+    }
+
+   /**
+    * Returns the version of the trafics, as {@link Trafics#getVersion(String)}
+    * @return the version of the trafics
+    */
+    public long getVersion() {return version;}
+
+   /**
+    * Returns the names of the perturbations active in this version
+    * @return an unmodifiable set containing the names of the perturbations
+    */
+    public Set<String> getPerturbations() {return perturbations;}
+  }
+
+  /**
+  * Add a trafic perturbation.
+  * The perturbation is a new layer over the actual graph, published with a new version of the trafics:
+  * it costs the time to build the layer whatever the size of the graph. The perturbations of a city are added one at a time.
+  * Adding a perturbation which is already active does nothing.
   * @param city the city in which the perturbation occured
   * @param type the type of the perturbation
   * @param parameter is the paramerer of the perturbation (for example the name of the line not working)
   */
   public static void addPerturbation(String city, Perturbation type, Object parameter) {
-    if (! actualTrafics.containsKey(city)) throw new IllegalArgumentException();
-    WGraph<Station> revert = null;
+    applyBatch(city, new Batch().add(type, parameter));
+  }
+
+  /**
+  * Revert a perturbation, its layer is removed from the actual graph whatever the other perturbations
+  * @param city the city in which the perturbation occured
+  * @param name the name of the perturbation
+  */
+  public static void revertPerturbation(String city, String name) {
+    applyBatch(city, new Batch().revert(name));
+  }
+
+  /**
+  * Add and revert several perturbations at once.
+  * Either every operation is applied or none: the parameters are all checked before the trafics are modified,
+  * and the result is published as a single new version, so the caches depending on the version are computed again only once.
+  * Adding a perturbation which is already active or reverting one which isn't does nothing; if nothing changes, the version stays the same.
+  * @param city the city in which the perturbations occured
+  * @param batch the perturbations to add and to revert, in order
+  * @return the version and the perturbations published by the batch, or the actual ones if nothing changes
+  * @throws IllegalArgumentException if the city doesn't exist or if the parameter of a perturbation is wrong
+  */
+  public static Snapshot applyBatch(String city, Batch batch) {
+    if (! load(city)) throw new IllegalArgumentException("Unknown city " + city);
+
+    // the layers are built before taking the lock, a wrong parameter throws an exception before anything is modified
+    ArrayList<Pair<String, LayeredWGraph.Layer<Station>>> layers = new ArrayList<Pair<String, LayeredWGraph.Layer<Station>>>();
+    for (Pair<Perturbation, Object> op : batch.operations) {
+      layers.add((op.getObj() == null) ? null : perturbation(city, op.getObj(), op.getValue()));
+    }
+
+    synchronized (lock(city)) {
+      State old = state(city);
+      HashMap<String, LayeredWGraph.Layer<Station>> perturbations = new HashMap<String, LayeredWGraph.Layer<Station>>(old.perturbations);
+      LayeredWGraph<Station> actual = old.actual;
+      for (int i = 0; i < layers.size(); i++) {
+        Pair<String, LayeredWGraph.Layer<Station>> p = layers.get(i);
+        if (p == null) {
+          String name = (String) batch.operations.get(i).getValue();
+          if (perturbations.containsKey(name)) actual = actual.withoutLayer(perturbations.remove(name));
+        }
+        else if (p.getValue() != null && ! perturbations.containsKey(p.getObj())) {
+          perturbations.put(p.getObj(), p.getValue());
+          actual = actual.withLayer(p.getValue());
+        }
+      }
+      if (actual == old.actual) return new Snapshot(old);
+      State st = new State(old.initial, old.registry, old.lines, actual, perturbations);
+      states.put(city, st);
+      return new Snapshot(st);
+    }
+  }
+
+  // Returns the name and the layer of a perturbation, the layer is null if the perturbation doesn't modify anything
+  private static Pair<String, LayeredWGraph.Layer<Station>> perturbation(String city, Perturbation type, Object parameter) {
+    LayeredWGraph.Layer<Station> layer = null;
     String name = "";
     switch (type) {
       case LINE_SHUTDOWN:
         if (! ( parameter instanceof String)) throw new IllegalArgumentException();
         name = "Line " + (String) parameter + " shutdown";
-        revert = lineShutdown(city, (String) parameter);
+        layer = lineShutdown(getLineIndex(city), (String) parameter);
         break;
       case LINE_SLOW_DOWN:
         if (! (parameter instanceof Pair<?, ?>)) throw new IllegalArgumentException();
         Pair<?,?> p1 = (Pair<?,?>) parameter;
-        if (! (p1.getObj() instanceof String || ! (p1.getValue() instanceof Double) )) throw new IllegalArgumentException();
+        if (! (p1.getObj() instanceof String) || ! (p1.getValue() instanceof Double)) throw new IllegalArgumentException();
         name = "Line " + (String) p1.getObj() + " slowed down by " + (Double) p1.getValue();
-        revert = lineSlowDown(city, (String) p1.getObj(), (Double) p1.getValue());
+        layer = lineSlowDown(getLineIndex(city), (String) p1.getObj(), (Double) p1.getValue());
         break;
       case ENTIRE_STATION_SHUT_DOWN:
         if (! (parameter instanceof String)) throw new IllegalArgumentException();
         name = "Station " + (String) parameter + " shutdown";
-        revert = entireStationShutDown(city, (String) parameter);
+        layer = entireStationShutDown((String) parameter);
         break;
       case PART_STATION_SHUT_DOWN:
         if (! (parameter instanceof Station)) throw new IllegalArgumentException();
         name = "Line " + ((Station) parameter).getLine() + " of station " + ((Station) parameter).getName() + " shutdown";
-        revert = partOfStationShutDown(city, (Station) parameter);
+        layer = partOfStationShutDown((Station) parameter);
         break;
       case PART_LINE_SHUT_DOWN:
         if (! (parameter instanceof Pair<?, ?>)) throw new IllegalArgumentException();
         Pair<?, ?> p2 = (Pair<?, ?>) parameter;
         if (! (p2.getObj() instanceof Station) || ! (p2.getValue() instanceof Station)) throw new IllegalArgumentException();
         name = "Line " + ((Station) p2.getObj()).getLine() + " between " + ((Station) p2.getObj()).getName() + " and " + ((Station) p2.getValue()).getName() + " is shutdown";
-        revert = partOfLineShutDown(city, (Station) p2.getObj(), (Station) p2.getValue());
+        layer = partOfLineShutDown(city, (Station) p2.getObj(), (Station) p2.getValue());
         break;
       case PART_LINE_SLOW_DOWN:
         if (! (parameter instanceof Object[])) throw new IllegalArgumentException();
@@ -120,228 +389,121 @@ public class Trafics {
         if (objs.length != 3) throw new IllegalArgumentException();
         if (! (objs[0] instanceof Station) || ! (objs[1] instanceof Station) || ! (objs[2] instanceof Double)) throw new IllegalArgumentException();
         name = "Trafic is slowed down by " + (Double) objs[2] + " in line " + ((Station)objs[0]).getLine() + " between " + ((Station)objs[0]).getName() + " and " + ((Station)objs[1]).getName();
-        revert = partOfLineSlowDown(city, (Station) objs[0], (Station) objs[1], (Double) objs[2]);
+        layer = partOfLineSlowDown(city, (Station) objs[0], (Station) objs[1], (Double) objs[2]);
         break;
       case ALL_TRAFICS_SLOW_DOWN:
         if (! ( parameter instanceof Double)) throw new IllegalArgumentException();
         name = "Trafic is slowed down by " + (Double) parameter + " everywhere";
-	      revert = allTraficsSlowDown(city, (Double) parameter);
-	break;
-    }
-    if (revert != null) reverts.get(city).put(name, revert);
-  }
-
-  /**
-  * Revert a perturbation
-  * @param city the city in which the perturbation occured
-  * @param name the name of the perturbation
-  */
-  public static void revertPerturbation(String city, String name) {
-    if (! reverts.containsKey(city) || !reverts.get(city).containsKey(name)) {
-      return;
+        layer = allTraficsSlowDown((Double) parameter);
+        break;
     }
-    actualTrafics.get(city).apply(reverts.get(city).get(name));
-    reverts.get(city).remove(name);
+    return new Pair<String, LayeredWGraph.Layer<Station>>(name, layer);
   }
 
 
-  /**
-  * Modify the graph g so that we can't take a line
-  * @param city the city in which we want to modify trafics
+ /**
+  * Return the layer shutting down a line: the edges between two stations of the line get an infinite weight
+  * @param lines the index of the lines of the graph (see {@link #getLineIndex(String)}), which gives the edges of the line
   * @param line the line we want to shutdown
-  * @return a WGraph that we can use to revert this perturbation
+  * @return the layer of the perturbation
   */
-  public static WGraph<Station> lineShutdown(String city, String line) {
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    for (Station s : actualG.getVertices()) {
-      if (! s.getLine().equals(line)) continue;
-      if (! revert.containsVertex(s)) revert.addVertex(s);
-      for (Station n : actualG.neighbors(s)) {
-        if (! n.getLine().equals(line)) continue;
-        if (! revert.containsVertex(n)) revert.addVertex(n);
-        revert.addEdge(s, n, initialG.weight(s, n));
-        actualG.setWeight(s, n, Double.POSITIVE_INFINITY);
-      }
-    }
-    return revert;
+  public static LayeredWGraph.Layer<Station> lineShutdown(LineIndex lines, String line) {
+    return edgesLayer(lines.getEdges(line), Double.POSITIVE_INFINITY);
   }
 
  /**
-  * Modify the time between stations in a graph
-  * @param city the city in which we want to modify trafics
+  * Return the layer slowing down a line
+  * @param lines the index of the lines of the graph (see {@link #getLineIndex(String)}), which gives the edges of the line
   * @param line the line affected by the perturbation
   * @param times the time between every station of the line will be multipclated by it
-  * @return a WGraph that can be use to revert this perturbation
+  * @return the layer of the perturbation
   */
-  public static WGraph<Station> lineSlowDown(String city, String line, double times) {
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    for (Station s : actualG.getVertices()) {
-      if (! s.getLine().equals(line)) continue;
-      if (! revert.containsVertex(s)) revert.addVertex(s);
-      for (Station n : actualG.neighbors(s)) {
-        if (! n.getLine().equals(line)) continue;
-        if (! revert.containsVertex(n)) revert.addVertex(n);
-        revert.addEdge(s, n, initialG.weight(s, n));
-        actualG.setWeight(s, n, initialG.weight(s, n) * times);
-      }
-    }
-    return revert;
+  public static LayeredWGraph.Layer<Station> lineSlowDown(LineIndex lines, String line, double times) {
+    return edgesLayer(lines.getEdges(line), times);
   }
 
-  /**
-  * Modify the graph g so that we can't stop or start by a station
+ /**
+  * Return the layer preventing to stop or start by a station, including to change lines there.
   * Passing over the station will still be possible
-  * @param city the city in which we want to modify trafics
   * @param station the station we want to shutdown
-  * @return a WGraph that we can use to revert this perturbation
+  * @return the layer of the perturbation
   */
-  public static WGraph<Station> entireStationShutDown(String city, String station) {
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    for (Station s : actualG.getVertices()) {
-      if (! s.getName().equals(station)) continue;
-      if (! revert.containsVertex(s)) revert.addVertex(s);
-      for (Station n : actualG.neighbors(s)) {
-        if (! n.getName().equals(station)) continue; // The line must be able to pass by the station
-        if (! revert.containsVertex(n)) revert.addVertex(n);
-        revert.addEdge(s, n, initialG.weight(s, n));
-        actualG.setWeight(s, n, Double.POSITIVE_INFINITY);
-      }
-    }
-    return revert;
+  public static LayeredWGraph.Layer<Station> entireStationShutDown(String station) {
+    // The line must be able to pass by the station
+    return (s, n) -> (s.getName().equals(station) && n.getName().equals(station)) ? Double.POSITIVE_INFINITY : 1.;
   }
 
  /**
-  * Modify the graph g so that we can't take one line of a station
-  * @param city the city in which we want to modify trafics
+  * Return the layer preventing to take one line of a station: its edges to the other lines and to the meta stations are shut down
   * @param st the station (name and line) we can't stop by
-  * @return a WGraph that we can use to revert this perturbation
+  * @return the layer of the perturbation
   */
-  public static WGraph<Station> partOfStationShutDown(String city, Station st) {
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    for (Station s :actualG.getVertices()) {
-      if (! s.getName().equals(st.getName())) continue;
-      if (actualG.neighbors(s).contains(st)) {
-        if (! revert.containsVertex(s)) revert.addVertex(s);
-        revert.addEdge(s, st, initialG.weight(s, st));
-        actualG.setWeight(s, st, Double.POSITIVE_INFINITY);
-      }
-    }
-    for (Station n : actualG.neighbors(st)) {
-      if (n.getLine().equals(st.getLine())) continue;
-      if (! revert.containsVertex(n)) revert.addVertex(n);
-      revert.addEdge(st, n, initialG.weight(st, n));
-      actualG.setWeight(st, n, Double.POSITIVE_INFINITY);
-    }
-    return revert;
+  public static LayeredWGraph.Layer<Station> partOfStationShutDown(Station st) {
+    return (s, n) -> {
+      if (n.equals(st) && s.getName().equals(st.getName())) return Double.POSITIVE_INFINITY;
+      if (s.equals(st) && ! n.getLine().equals(st.getLine())) return Double.POSITIVE_INFINITY;
+      return 1.;
+    };
   }
+
  /**
-  * Modify the graph g so we can't take a line from one station to an other one
+  * Return the layer preventing to take a line from one station to an other one
   * @param city the city in which we want to modify trafics
   * @param start the start of the shutdown
   * @param end the end of the shutdown
-  * @return a WGraph that we can use to revert this perturbation
-  * Note that start and end stations must be one the same line
+  * @return the layer of the perturbation, or null if start and end are not on the same line
   */
-  public static WGraph<Station> partOfLineShutDown(String city, Station start, Station end) {
-    if (start.getLine() != end.getLine()  || start.getLine().startsWith("Meta Station")) return null;
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<>();
-    HashMap<Pair<Station, Integer>, Double> dist = new HashMap<>();
-    BiPredicate<Station, Station> sameLine = (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station");
-    BouarahAlgorithm.shortestPath(initialG, start, 0, sameLine, prev, dist);
-
-    Station it = end;
-    revert.addVertex(it);
-    Station prec;
-    while(true) {
-      try {
-        prec = prev.get(new Pair<Station, Integer>(it, 0)).getObj();
-      } catch(NullPointerException e) {break;}
-      revert.addVertex(prec);
-      if (initialG.weight(it, prec) != Double.NaN) {
-        revert.addEdge(it, prec, initialG.weight(it, prec));
-        actualG.setWeight(it, prec, Double.POSITIVE_INFINITY);
-      }
-      revert.addEdge(prec, it, initialG.weight(prec, it));
-      actualG.setWeight(prec, it, Double.POSITIVE_INFINITY);
-
-      it = prec;
-    }
-    return revert;
-
+  public static LayeredWGraph.Layer<Station> partOfLineShutDown(String city, Station start, Station end) {
+    return partOfLine(city, start, end, Double.POSITIVE_INFINITY);
   }
+
  /**
-  * Modify the graph g so that a part of the line is slow down
+  * Return the layer slowing down a part of a line
   * @param city the city in which we want to add the perturbation
   * @param start the start of the slow down
   * @param end the end of the slow down
   * @param times the time for every traject concerned will be multiplied by it
-  * @return a WGraph that can be use to revert this perturbation
-  * Note that the start and end stations must be on the same line
+  * @return the layer of the perturbation, or null if start and end are not on the same line
   */
-  public static WGraph<Station> partOfLineSlowDown(String city, Station start, Station end, Double times) {
-    if (start.getLine() != end.getLine()  || start.getLine().startsWith("Meta Station")) return null;
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<>();
-    HashMap<Pair<Station, Integer>, Double> dist = new HashMap<>();
-    BiPredicate<Station, Station> sameLine = (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station");
-    BouarahAlgorithm.shortestPath(initialG, start, 0, sameLine, prev, dist);
-
-    Station it = end;
-    revert.addVertex(it);
-    Station prec;
-    while(true) {
-      try {
-        prec = prev.get(new Pair<Station, Integer>(it, 0)).getObj();
-      } catch(NullPointerException e) {break;}
-      revert.addVertex(prec);
-      if (initialG.weight(it, prec) != Double.NaN) {
-        revert.addEdge(it, prec, initialG.weight(it, prec));
-        actualG.setWeight(it, prec, actualG.weight(it, prec) * times);
-      }
-      revert.addEdge(prec, it, initialG.weight(prec, it));
-      actualG.setWeight(prec, it, actualG.weight(prec, it) * times);
+  public static LayeredWGraph.Layer<Station> partOfLineSlowDown(String city, Station start, Station end, Double times) {
+    return partOfLine(city, start, end, times);
+  }
 
-      it = prec;
+  // The layer multiplying by factor the edges (in both directions) of the fastest way on the line from start to end
+  private static LayeredWGraph.Layer<Station> partOfLine(String city, Station start, Station end, double factor) {
+    if (! start.getLine().equals(end.getLine()) || start.isMeta()) return null;
+    ArrayList<Pair<Station, Station>> edges = new ArrayList<Pair<Station, Station>>();
+    Station prec = null;
+    for (Station it : getLineIndex(city).segment(start, end)) {
+      if (prec != null) {
+        edges.add(new Pair<Station, Station>(prec, it));
+        edges.add(new Pair<Station, Station>(it, prec));
+      }
+      prec = it;
     }
-    return revert;
+    return edgesLayer(edges, factor);
+  }
 
+  // The layer multiplying by factor the given edges: only them are looked up, the other edges keep their weight
+  private static LayeredWGraph.Layer<Station> edgesLayer(Iterable<Pair<Station, Station>> edges, double factor) {
+    HashMap<Station, HashMap<Station, Double>> factors = new HashMap<Station, HashMap<Station, Double>>();
+    for (Pair<Station, Station> e : edges) factors.computeIfAbsent(e.getObj(), k -> new HashMap<Station, Double>()).put(e.getValue(), factor);
+    return (s, n) -> {
+      HashMap<Station, Double> h = factors.get(s);
+      if (h == null) return 1.;
+      Double f = h.get(n);
+      return (f == null) ? 1. : f;
+    };
   }
 
  /**
-  * Modify the time between stations in a graph
-  * @param city the city in which we want to modify trafics
+  * Return the layer slowing down every line, the correspondances are not slowed down
   * @param times the time between every station will be multipclated by it
-  * @return a WGraph that can be use to revert this perturbation
+  * @return the layer of the perturbation
   */
-  public static WGraph<Station> allTraficsSlowDown(String city, double times) {
-    WGraph<Station> actualG = actualTrafics.get(city);
-    WGraph<Station> initialG = initialTrafics.get(city);
-    WGraph<Station> revert = new WGraph<Station>();
-    for (Station s : actualG.getVertices()) {
-      if (! revert.containsVertex(s)) revert.addVertex(s);
-      for (Station n : actualG.neighbors(s)) {
-        if (! revert.containsVertex(n)) revert.addVertex(n);
-        revert.addEdge(s, n, initialG.weight(s, n));
-	if( s.sameName(n) ) // pas de ralentissement sur les correspondances
-	 actualG.setWeight(s, n, initialG.weight(s, n));
-	else
-	 actualG.setWeight(s, n, initialG.weight(s, n) * times);
-      }
-    }
-    return revert;
+  public static LayeredWGraph.Layer<Station> allTraficsSlowDown(double times) {
+    // pas de ralentissement sur les correspondances
+    return (s, n) -> s.sameName(n) ? 1. : times;
   }
 
 }
@@ -1,20 +1,26 @@
 package fr.univparis.metro;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
 
 /**
- * A weighted graph class
+ * A weighted graph class.
+ * Besides the outgoing edges of every vertex, the graph maintains a reverse index of the incoming edges
+ * so that the predecessors of a vertex can be found without going through the whole graph.
  */
 public class WGraph<T> implements Cloneable{
 
   private HashMap<T, HashMap<T, Double>> wGraph;
+  private HashMap<T, HashSet<T>> reverse;
 
   /**
   * Creates an empty Weighted Graph
   */
   public WGraph(){
     this.wGraph = new HashMap<T, HashMap<T, Double>>();
+    this.reverse = new HashMap<T, HashSet<T>>();
   }
 
   /**
@@ -31,6 +37,7 @@ public class WGraph<T> implements Cloneable{
         h.put(s, w);
       }
       c.wGraph.put(t, h);
+      c.reverse.put(t, new HashSet<T>(this.predecessors(t)));
     }
     return c;
   }
@@ -41,6 +48,7 @@ public class WGraph<T> implements Cloneable{
   * @return True if and only if the instance graph and the parameter graph represent the same network
   */
   public boolean equals(WGraph<T> g){
+    if (g.getClass() != WGraph.class) return g.equals(this);
     return(g.wGraph.equals(this.wGraph));
   }
 
@@ -66,6 +74,14 @@ public class WGraph<T> implements Cloneable{
     return wGraph.get(vertex).keySet();
   }
 
+  /**
+  * Returns the predecessors of a vertex contained in the graph.
+  * @param vertex the vertex which we want the predecessors.
+  * @return the set of all the vertices that can reach the parameter vertex with one edge
+  */
+  public Set<T> predecessors(T vertex){
+    return Collections.unmodifiableSet(reverse.get(vertex));
+  }
 
   /**
   * Returns the weight between two vertices
@@ -88,6 +104,7 @@ public class WGraph<T> implements Cloneable{
   public boolean addVertex(T v){
     if(this.wGraph.get(v) == null){
       this.wGraph.put(v, new HashMap<T, Double> ());
+      this.reverse.put(v, new HashSet<T> ());
       return true;
     }
     return false;
@@ -95,16 +112,20 @@ public class WGraph<T> implements Cloneable{
 
 
   /**
-  * Deletes a vertex of the graph and all the edges that are link to it
+  * Deletes a vertex of the graph and all the edges that are link to it, in a time proportional to its degree
   * @param v the vertex we want to delete
   * @return true if v has been deleted, false if the vertex hasn't be found.
   */
   public boolean deleteVertex(T v){
     if(this.wGraph.containsKey(v)){
-      for(T t : getVertices()){
-        removeEdge(t, v);
+      for(T t : reverse.get(v)){
+        wGraph.get(t).remove(v);
+      }
+      for(T n : wGraph.get(v).keySet()){
+        reverse.get(n).remove(v);
       }
       this.wGraph.remove(v);
+      this.reverse.remove(v);
       return true;
     }
     return false;
@@ -122,6 +143,7 @@ public class WGraph<T> implements Cloneable{
     if (s.equals(p)) return false;
     if(this.wGraph.containsKey(s) && this.wGraph.containsKey(p) && this.weight(s, p).equals(Double.NaN)) {
       this.wGraph.get(s).put(p, weight);
+      this.reverse.get(p).add(s);
       return true;
     }
     return false;
@@ -135,7 +157,9 @@ public class WGraph<T> implements Cloneable{
   * @return true if the edge has correctly been removed (false occurs when the specified edge don't exist).
   */
   public boolean removeEdge(T s, T p){
-    return wGraph.get(s).remove(p) != null;
+    if (wGraph.get(s).remove(p) == null) return false;
+    reverse.get(p).remove(s);
+    return true;
   }
 
   /**
@@ -165,7 +189,7 @@ public class WGraph<T> implements Cloneable{
   */
   public int nbVertex(Predicate<T> p) {
     int res = 0;
-    Set<T> set = wGraph.keySet();
+    Set<T> set = getVertices();
     for (T t : set) {
       if (p.test(t)) res++;
     }
@@ -180,7 +204,7 @@ public class WGraph<T> implements Cloneable{
   */
   public String vertexToString(Predicate<T> p) {
     String res = "";
-    for (T t : wGraph.keySet()) {
+    for (T t : getVertices()) {
       if (p.test(t)) res += t.toString() + "\n";
     }
     return res;
@@ -219,12 +243,14 @@ public class WGraph<T> implements Cloneable{
       for (T n : g.neighbors(t)) {
         if (! this.containsVertex(n)) this.addVertex(n);
         this.wGraph.get(t).put(n, g.weight(t, n));
+        this.reverse.get(n).add(t);
       }
     }
   }
 
  /**
   * Removes a vertex and replace it by two vertex wich will have the same edges.
+  * It runs in a time proportional to the degree of the vertex.
   * @param old the vertex we want to split into two vertices
   * @param newVert1 one of the new vertex that replace old
   * @param newVert2 the other new vertex that replace old
@@ -238,11 +264,9 @@ public class WGraph<T> implements Cloneable{
       addEdge(newVert2, n, weight(old, n));
     }
 
-    for (T t : getVertices()) {
-      if (neighbors(t).contains(old)) {
-        addEdge(t, newVert1, weight(t, old));
-        addEdge(t, newVert2, weight(t, old));
-      }
+    for (T t : reverse.get(old)) {
+      addEdge(t, newVert1, weight(t, old));
+      addEdge(t, newVert2, weight(t, old));
     }
     deleteVertex(old);
   }
@@ -0,0 +1,69 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class AStarTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+  static Landmarks<Station> landmarks;
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(AStarTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+    landmarks = new Landmarks<Station>(w, 8);
+  }
+
+  private static void compare(WGraph<Station> g, long seed) {
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    HashMap<Station, Station> prevA = new HashMap<Station, Station>();
+    HashMap<Station, Double> distA = new HashMap<Station, Double>();
+    ArrayList<Station> starts = new ArrayList<Station>();
+    ArrayList<Station> ends = new ArrayList<Station>();
+    for (Station s : g.getVertices()) {
+      if (s.getLine().equals("Meta Station Start")) starts.add(s);
+      if (s.getLine().equals("Meta Station End")) ends.add(s);
+    }
+    Random r = new Random(seed);
+    for (int i = 0; i < 200; i++) {
+      Station s = starts.get(r.nextInt(starts.size()));
+      Station t = ends.get(r.nextInt(ends.size()));
+      Dijkstra.shortestPath(g, s, t, prev, dist);
+      AStar.shortestPath(g, landmarks, s, t, prevA, distA);
+      assertEquals(dist.get(t), distA.get(t));
+      if (distA.get(t) < Double.POSITIVE_INFINITY) {
+        double length = 0.;
+        for (Station st = t; ! st.equals(s); st = prevA.get(st)) length += g.weight(prevA.get(st), st);
+        assertEquals(distA.get(t), length, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void shortestPathTest() {
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    AStar.shortestPath(w, landmarks, laumS, mdiE, prev, dist);
+    assertEquals((Double) 2340.0, dist.get(mdiE));
+    assertTrue(dist.size() < w.nbVertex());
+    compare(w, 11);
+  }
+
+  @Test
+  public void slowedDownTest() {
+    WGraph<Station> g = w.clone();
+    for (Station s : g.getVertices()) {
+      for (Station n : g.neighbors(s)) {
+        if (s.getLine().equals("4") && n.getLine().equals("4")) g.setWeight(s, n, g.weight(s, n) * 3);
+        if (s.getLine().equals("1") && n.getLine().equals("1")) g.setWeight(s, n, Double.POSITIVE_INFINITY);
+      }
+    }
+    assertTrue(landmarks.isLowerBoundOf(g));
+    compare(g, 12);
+  }
+}
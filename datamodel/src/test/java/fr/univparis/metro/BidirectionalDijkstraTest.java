@@ -0,0 +1,67 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class BidirectionalDijkstraTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(BidirectionalDijkstraTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+  }
+
+  @Test
+  public void shortestPathTest() {
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    Pair<LinkedList<Station>, Double> res = BidirectionalDijkstra.shortestPath(w, laumS, mdiE);
+    assertEquals((Double) 2340.0, res.getValue());
+    assertEquals(laumS, res.getObj().getFirst());
+    assertEquals(mdiE, res.getObj().getLast());
+
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    ArrayList<Station> starts = new ArrayList<Station>();
+    ArrayList<Station> ends = new ArrayList<Station>();
+    for (Station s : w.getVertices()) {
+      if (s.getLine().equals("Meta Station Start")) starts.add(s);
+      if (s.getLine().equals("Meta Station End")) ends.add(s);
+    }
+    Random r = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      Station s = starts.get(r.nextInt(starts.size()));
+      Station t = ends.get(r.nextInt(ends.size()));
+      Dijkstra.shortestPath(w, s, t, prev, dist);
+      res = BidirectionalDijkstra.shortestPath(w, s, t);
+      assertEquals(dist.get(t), res.getValue());
+
+      double length = 0.;
+      Station last = null;
+      for (Station st : res.getObj()) {
+        if (last != null) length += w.weight(last, st);
+        last = st;
+      }
+      assertEquals(res.getValue(), length, 0.0);
+    }
+  }
+
+  @Test
+  public void noPathTest() {
+    WGraph<String> g = new WGraph<String>();
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addEdge("B", "A", 10.);
+    g.addEdge("A", "C", 10.);
+    Pair<LinkedList<String>, Double> res = BidirectionalDijkstra.shortestPath(g, "A", "B");
+    assertTrue(res.getObj().isEmpty());
+    assertEquals((Double) Double.POSITIVE_INFINITY, res.getValue());
+    res = BidirectionalDijkstra.shortestPath(g, "B", "C");
+    assertEquals(Arrays.asList("B", "A", "C"), res.getObj());
+    assertEquals((Double) 20., res.getValue());
+  }
+}
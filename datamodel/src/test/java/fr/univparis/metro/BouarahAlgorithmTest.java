@@ -58,4 +58,60 @@ public class BouarahAlgorithmTest {
 	assertNull(prev.get(tmp));
     }
 
+    @Test
+    public void shortestPathCSRTest() {
+	Station start = new Station("COURCELLES", "Meta Station Start");
+	int limit = 2;
+	HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<>();
+	HashMap<Pair<Station, Integer>, Double> dist = new HashMap<>();
+	HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prevCSR = new HashMap<>();
+	HashMap<Pair<Station, Integer>, Double> distCSR = new HashMap<>();
+
+	BouarahAlgorithm.shortestPath(g, start, limit, sameLine, prev, dist);
+	BouarahAlgorithm.shortestPath(new CSRGraph<Station>(g), start, limit, sameLine, prevCSR, distCSR);
+	assertEquals(dist, distCSR);
+    }
+
+    @Test
+    public void startNotInGraphTest() {
+	Station start = new Station("ATLANTIS", "Meta Station Start");
+	int limit = 2;
+	HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<>();
+	HashMap<Pair<Station, Integer>, Double> dist = new HashMap<>();
+	BouarahAlgorithm.shortestPath(g, start, limit, sameLine, prev, dist);
+	assertEquals(0.0, dist.get(new Pair<Station, Integer>(start, 0)), 0.0);
+	// every state of the graph is still in dist
+	for (Station v : g.getVertices())
+	    for (int i = 0; i <= limit; i++)
+		assertEquals(Double.POSITIVE_INFINITY, dist.get(new Pair<Station, Integer>(v, i)), 0.0);
+	assertTrue(prev.isEmpty());
+    }
+
+    @Test
+    public void shortestPathPackedTest() {
+	CSRGraph<Station> c = new CSRGraph<Station>(g);
+	int limit = 2;
+	int levels = limit + 1;
+	int[] prev = new int[c.nbVertex() * levels];
+	double[] dist = new double[c.nbVertex() * levels];
+	IntPriorityQueue queue = new IntPriorityQueue(c.nbVertex() * levels);
+	Station start = new Station("COURCELLES", "Meta Station Start");
+	int stop1 = c.id(new Station("LA DEFENSE - GRANDE ARCHE", "Meta Station End"));
+	int stop3 = c.id(new Station("CRETEIL - PREFECTURE", "Meta Station End"));
+
+	// the queue is reused by both searches
+	for (int k = 0; k < 2; k++) {
+	    BouarahAlgorithm.shortestPath(c, c.id(start), limit, sameLine, prev, dist, queue);
+	    assertEquals(0.0, dist[c.id(start) * levels], 0.0);
+	    assertEquals(-1, prev[c.id(start) * levels]);
+	    assertEquals(780.0, dist[stop1 * levels + 1], 0.0);
+	    assertEquals(Double.POSITIVE_INFINITY, dist[stop1 * levels], 0.0);
+	    assertEquals(2640.0, dist[stop3 * levels + 2], 0.0);
+	    assertEquals(-1, prev[stop3 * levels + 1]);
+	    int p = prev[stop1 * levels + 1];
+	    assertTrue(p % levels <= 1);
+	    assertEquals(780.0, dist[p] + g.weight(c.vertex(p / levels), c.vertex(stop1)), 0.0);
+	}
+    }
+
 }
@@ -0,0 +1,97 @@
+package fr.univparis.metro;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.Before;
+
+public class CSRGraphTest {
+
+  WGraph<String> g;
+  CSRGraph<String> c;
+
+  @Before
+  public void initializeGraph() {
+    g = new WGraph<String>();
+    g.addVertex("OURCQ");
+    g.addVertex("LAUMIERE");
+    g.addVertex("JAURES");
+    g.addVertex("PORTE DE PANTIN");
+    g.addEdge("OURCQ", "LAUMIERE", 70.0);
+    g.addEdge("LAUMIERE", "JAURES", 75.0);
+    g.addDoubleEdge("OURCQ", 60., (t -> t.equals("PORTE DE PANTIN")));
+    c = new CSRGraph<String>(g);
+  }
+
+  @Test
+  public void sizeTest() {
+    assertEquals(4, c.nbVertex());
+    assertEquals(4, c.nbEdge());
+    assertEquals(c.nbVertex() + 1, c.getOffsets().length);
+    assertEquals(-1, c.id("GARE DU NORD"));
+  }
+
+  @Test
+  public void idTest() {
+    for (String s : g.getVertices()) {
+      assertEquals(s, c.vertex(c.id(s)));
+    }
+  }
+
+  @Test
+  public void edgesTest() {
+    for (String s : g.getVertices()) {
+      int i = c.id(s);
+      assertEquals(g.neighbors(s).size(), c.getOffsets()[i + 1] - c.getOffsets()[i]);
+      for (int e = c.getOffsets()[i]; e < c.getOffsets()[i + 1]; e++) {
+        String n = c.vertex(c.getTargets()[e]);
+        assertTrue(g.neighbors(s).contains(n));
+        assertEquals(g.weight(s, n), c.getWeights()[e], 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void notModifiedTest() {
+    g.setWeight("OURCQ", "LAUMIERE", 10.0);
+    int i = c.id("OURCQ");
+    for (int e = c.getOffsets()[i]; e < c.getOffsets()[i + 1]; e++) {
+      if (c.vertex(c.getTargets()[e]).equals("LAUMIERE")) assertEquals(70.0, c.getWeights()[e], 0.0);
+    }
+  }
+  @Test
+  public void reweightTest() {
+    WGraph<String> o = new LayeredWGraph<String>(g).withLayer((u, v) -> (u.equals("OURCQ") && v.equals("LAUMIERE")) ? 0.5 : 1.);
+    CSRGraph<String> r = c.reweight(o);
+    assertSame(c.getTargets(), r.getTargets());
+    for (String s : g.getVertices()) {
+      int i = r.id(s);
+      assertEquals(c.id(s), i);
+      for (int e = r.getOffsets()[i]; e < r.getOffsets()[i + 1]; e++) {
+        String n = r.vertex(r.getTargets()[e]);
+        assertEquals(o.weight(s, n), r.getWeights()[e], 0.0);
+      }
+    }
+    // the original is not modified
+    int i = c.id("OURCQ");
+    for (int e = c.getOffsets()[i]; e < c.getOffsets()[i + 1]; e++) {
+      if (c.vertex(c.getTargets()[e]).equals("LAUMIERE")) assertEquals(70.0, c.getWeights()[e], 0.0);
+    }
+  }
+
+  @Test
+  public void transposeTest() {
+    CSRGraph<String> t = c.transpose();
+    assertEquals(c.nbVertex(), t.nbVertex());
+    assertEquals(c.nbEdge(), t.nbEdge());
+    for (String s : g.getVertices()) {
+      int i = t.id(s);
+      assertEquals(c.id(s), i);
+      assertEquals(g.predecessors(s).size(), t.getOffsets()[i + 1] - t.getOffsets()[i]);
+      for (int e = t.getOffsets()[i]; e < t.getOffsets()[i + 1]; e++) {
+        String p = t.vertex(t.getTargets()[e]);
+        assertEquals(g.weight(p, s), t.getWeights()[e], 0.0);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,116 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class ContractionHierarchyTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+  static ContractionHierarchy<Station> ch;
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(ContractionHierarchyTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+    ch = new ContractionHierarchy<Station>(w);
+  }
+
+  @Test
+  public void shortestPathTest() {
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    assertEquals(2340.0, ch.shortestPath(laumS, mdiE, prev, dist), 0.0);
+    assertEquals((Double) 2340.0, dist.get(mdiE));
+  }
+
+  @Test
+  public void allPairsTest() {
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    HashMap<Station, Station> prevCH = new HashMap<Station, Station>();
+    HashMap<Station, Double> distCH = new HashMap<Station, Double>();
+    ArrayList<Station> starts = new ArrayList<Station>();
+    ArrayList<Station> ends = new ArrayList<Station>();
+    for (Station s : w.getVertices()) {
+      if (s.getLine().equals("Meta Station Start")) starts.add(s);
+      if (s.getLine().equals("Meta Station End")) ends.add(s);
+    }
+    Random r = new Random(5);
+    for (int i = 0; i < 30; i++) {
+      Station s = starts.get(r.nextInt(starts.size()));
+      Dijkstra.shortestPath(w, s, prev, dist);
+      for (Station t : ends) {
+        double d = ch.shortestPath(s, t, prevCH, distCH);
+        assertEquals(dist.get(t), d, 0.0);
+        double length = 0.;
+        Station st = t;
+        for (; prevCH.containsKey(st); st = prevCH.get(st)) length += w.weight(prevCH.get(st), st);
+        assertEquals(s, st);
+        assertEquals(d, length, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void concurrentQueriesTest() throws Exception {
+    ArrayList<Station> starts = new ArrayList<Station>();
+    for (Station s : w.getVertices()) if (s.getLine().equals("Meta Station Start")) starts.add(s);
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    HashMap<Station, Double> expected = new HashMap<Station, Double>();
+    for (Station s : starts) {
+      Dijkstra.shortestPath(w, s, mdiE, prev, dist);
+      expected.put(s, dist.get(mdiE));
+    }
+    // the queries running at the same time use different workspaces
+    java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+    try {
+      pool.submit(() -> starts.parallelStream().forEach(s -> {
+        double d = ch.shortestPath(s, mdiE, new HashMap<Station, Station>(), new HashMap<Station, Double>());
+        assertEquals(expected.get(s), d, 0.0);
+      })).get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void noPathTest() {
+    WGraph<String> g = new WGraph<String>();
+    g.addVertex("A");
+    g.addVertex("B");
+    g.addVertex("C");
+    g.addVertex("D");
+    g.addEdge("A", "B", 10.);
+    g.addEdge("B", "C", 10.);
+    g.addEdge("A", "C", 30.);
+    g.addEdge("C", "D", Double.POSITIVE_INFINITY);
+    ContractionHierarchy<String> c = new ContractionHierarchy<String>(g);
+    HashMap<String, String> prev = new HashMap<String, String>();
+    HashMap<String, Double> dist = new HashMap<String, Double>();
+    assertEquals(20., c.shortestPath("A", "C", prev, dist), 0.0);
+    assertEquals("B", prev.get("C"));
+    assertEquals("A", prev.get("B"));
+    assertEquals(Double.POSITIVE_INFINITY, c.shortestPath("C", "A", prev, dist), 0.0);
+    assertEquals((Double) Double.POSITIVE_INFINITY, dist.get("A"));
+    assertEquals(Double.POSITIVE_INFINITY, c.shortestPath("C", "D", prev, dist), 0.0);
+    assertEquals(0., c.shortestPath("A", "A", prev, dist), 0.0);
+  }
+
+  @Test
+  public void cacheTest() {
+    Configuration.loadFrom(ContractionHierarchyTest.class.getResourceAsStream("/cities.json"));
+    Trafics.initTrafics();
+    ContractionHierarchy<Station> c = HierarchyCache.get("Lille");
+    assertNotNull(c);
+    assertSame(c, HierarchyCache.get("Lille"));
+    Trafics.addPerturbation("Lille", Trafics.Perturbation.LINE_SHUTDOWN, "1");
+    assertNull(HierarchyCache.get("Lille"));
+    Trafics.revertPerturbation("Lille", "Line 1 shutdown");
+    assertSame(c, HierarchyCache.get("Lille"));
+  }
+}
@@ -51,4 +51,62 @@ public class DijkstraTest{
       }
     }
   }
+
+  @Test
+  public void shortestPathCSRTest(){
+    CSRGraph<Station> c = new CSRGraph<Station>(w);
+    int[] prevId = new int[c.nbVertex()];
+    double[] distId = new double[c.nbVertex()];
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist  = new HashMap<Station, Double>();
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+
+    Dijkstra.shortestPath(w, laumS, prev, dist);
+    Dijkstra.shortestPath(c, c.id(laumS), prevId, distId);
+    assertEquals(-1, prevId[c.id(laumS)]);
+    for (Station s : w.getVertices()) {
+      assertEquals(dist.get(s), distId[c.id(s)], 0.0);
+      if (prevId[c.id(s)] != -1) {
+        Station p = c.vertex(prevId[c.id(s)]);
+        assertEquals(distId[c.id(s)], distId[c.id(p)] + w.weight(p, s), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void shortestPathToTargetTest(){
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist  = new HashMap<Station, Double>();
+    HashMap<Station, Station> prevAll = new HashMap<Station, Station>();
+    HashMap<Station, Double> distAll  = new HashMap<Station, Double>();
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    Station jaurE = new Station("JAURES", "Meta Station End");
+
+    Dijkstra.shortestPath(w, laumS, mdiE, prev, dist);
+    assertEquals((Double) 2340.0, dist.get(mdiE));
+    Dijkstra.shortestPath(w, laumS, prevAll, distAll);
+    assertEquals(distAll.get(mdiE), dist.get(mdiE));
+    for (Station s = mdiE; ! s.equals(laumS); s = prev.get(s))
+      assertEquals(distAll.get(s), dist.get(s));
+
+    Dijkstra.shortestPath(w, laumS, jaurE, prev, dist);
+    assertEquals(distAll.get(jaurE), dist.get(jaurE));
+    assertTrue(dist.size() < w.nbVertex());
+
+    CSRGraph<Station> c = new CSRGraph<Station>(w);
+    int[] prevId = new int[c.nbVertex()];
+    double[] distId = new double[c.nbVertex()];
+    IntPriorityQueue queue = new IntPriorityQueue(c.nbVertex());
+    assertEquals(2340.0, Dijkstra.shortestPath(c, c.id(laumS), c.id(mdiE), prevId, distId, queue), 0.0);
+
+    WGraph<Station> g = new WGraph<Station>();
+    Station a = new Station("A", "1");
+    Station b = new Station("B", "1");
+    g.addVertex(a);
+    g.addVertex(b);
+    Dijkstra.shortestPath(g, a, b, prev, dist);
+    assertEquals((Double) Double.POSITIVE_INFINITY, dist.get(b));
+    assertNull(prev.get(b));
+  }
 }
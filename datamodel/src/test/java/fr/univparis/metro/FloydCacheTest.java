@@ -0,0 +1,56 @@
+package fr.univparis.metro;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.BeforeClass;
+
+public class FloydCacheTest {
+
+  @BeforeClass
+  public static void initTest() {
+    Configuration.loadFrom(FloydCacheTest.class.getResourceAsStream("/cities.json"));
+    Trafics.initTrafics();
+  }
+
+  @Test
+  public void getTest() {
+    MatriceWGraph m = FloydCache.get("Orly");
+    assertSame(m, FloydCache.get("Orly"));
+    assertEquals(180.0, m.getDirect()[m.getSetOfVertices().get("ANTONY")][m.getSetOfVertices().get("ORLY 4")], 0.0);
+
+    long version = Trafics.getVersion("Orly");
+    Trafics.addPerturbation("Orly", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0));
+    assertNotEquals(version, Trafics.getVersion("Orly"));
+    MatriceWGraph slow = FloydCache.get("Orly");
+    assertNotSame(m, slow);
+    assertSame(slow, FloydCache.get("Orly"));
+    assertEquals(360.0, slow.getDirect()[slow.getSetOfVertices().get("ANTONY")][slow.getSetOfVertices().get("ORLY 4")], 0.0);
+
+    Trafics.revertPerturbation("Orly", "Line 1 slowed down by 2.0");
+    MatriceWGraph reverted = FloydCache.get("Orly");
+    assertNotSame(slow, reverted);
+    assertEquals(180.0, reverted.getDirect()[reverted.getSetOfVertices().get("ANTONY")][reverted.getSetOfVertices().get("ORLY 4")], 0.0);
+  }
+
+  @Test
+  public void concurrentGetTest() throws Exception {
+    FloydCache.evict("Lille");
+    Thread[] threads = new Thread[4];
+    MatriceWGraph[] res = new MatriceWGraph[threads.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int k = i;
+      threads[i] = new Thread(() -> res[k] = FloydCache.get("Lille"));
+      threads[i].start();
+    }
+    for (Thread t : threads) t.join();
+    // the matrices are computed once for all the requests
+    for (MatriceWGraph m : res) assertSame(FloydCache.get("Lille"), m);
+  }
+
+  @Test
+  public void versionTest() {
+    long version = Trafics.getVersion("Lille");
+    Trafics.revertPerturbation("Lille", "unknown perturbation");
+    assertEquals(version, Trafics.getVersion("Lille"));
+  }
+}
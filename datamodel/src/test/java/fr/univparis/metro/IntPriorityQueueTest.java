@@ -0,0 +1,118 @@
+package fr.univparis.metro;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntPriorityQueueTest {
+
+  IntPriorityQueue pQueue;
+
+  @Before
+  public void initPriorityQueue() {
+    pQueue = new IntPriorityQueue(10);
+
+    pQueue.add(0, 5.0);
+    pQueue.add(1, 10.0);
+    pQueue.add(2, 7.0);
+    pQueue.add(3, 12.0);
+    pQueue.add(4, 15.0);
+    pQueue.add(5, 11.0);
+    pQueue.add(6, 8.0);
+  }
+
+  @Test
+  public void isEmptyTest() {
+    assertTrue(new IntPriorityQueue(3).isEmpty());
+    assertFalse(pQueue.isEmpty());
+    assertEquals(7, pQueue.size());
+  }
+
+  @Test
+  public void addTest() {
+    assertTrue(pQueue.add(7, 17.0));
+    assertFalse(pQueue.add(7, 0.0));
+    assertFalse(pQueue.add(10, 0.0));
+    assertFalse(pQueue.add(-1, 0.0));
+
+    assertTrue(pQueue.add(9, Double.NEGATIVE_INFINITY));
+    assertEquals(9, pQueue.peek());
+    assertEquals(9, pQueue.poll());
+  }
+
+  @Test
+  public void pollTest() {
+    int[] order = {0, 2, 6, 1, 5, 3, 4};
+    for (int i : order) assertEquals(i, pQueue.poll());
+    assertEquals(-1, pQueue.poll());
+    assertEquals(Double.POSITIVE_INFINITY, pQueue.peekKey(), 0.0);
+  }
+
+  @Test
+  public void updatePriorityTest() {
+    assertTrue(pQueue.updatePriority(6, 1.0));
+    assertEquals(1.0, pQueue.peekKey(), 0.0);
+    assertEquals(6, pQueue.poll());
+
+    assertFalse(pQueue.updatePriority(6, 0.0));
+    assertFalse(pQueue.updatePriority(0, 100.0));
+
+    assertTrue(pQueue.add(9, Double.POSITIVE_INFINITY));
+    assertTrue(pQueue.updatePriority(9, Double.NEGATIVE_INFINITY));
+    assertEquals(9, pQueue.poll());
+  }
+
+  @Test
+  public void removeTest() {
+    assertTrue(pQueue.remove(0));
+    assertFalse(pQueue.remove(0));
+    assertFalse(pQueue.contains(0));
+
+    assertEquals(2, pQueue.poll());
+
+    assertTrue(pQueue.remove(1));
+    assertTrue(pQueue.remove(5));
+    assertTrue(pQueue.remove(4));
+
+    assertEquals(6, pQueue.poll());
+    assertEquals(3, pQueue.poll());
+
+    assertFalse(pQueue.remove(6));
+    assertTrue(pQueue.isEmpty());
+  }
+
+  @Test
+  public void clearTest() {
+    pQueue.clear();
+    assertTrue(pQueue.isEmpty());
+    assertFalse(pQueue.contains(3));
+    assertTrue(pQueue.add(3, 1.0));
+    assertEquals(3, pQueue.poll());
+  }
+
+  @Test
+  public void randomTest() {
+    Random r = new Random(7);
+    IntPriorityQueue q = new IntPriorityQueue(500);
+    double[] keys = new double[500];
+    for (int i = 0; i < 500; i++) {
+      keys[i] = r.nextDouble();
+      q.add(i, keys[i]);
+    }
+    for (int i = 0; i < 500; i += 3) {
+      keys[i] /= 2;
+      q.updatePriority(i, keys[i]);
+    }
+    for (int i = 1; i < 500; i += 7) q.remove(i);
+    double last = Double.NEGATIVE_INFINITY;
+    int nb = 0;
+    while (! q.isEmpty()) {
+      int v = q.poll();
+      assertTrue(keys[v] >= last);
+      last = keys[v];
+      nb++;
+    }
+    assertEquals(500 - 72, nb);
+  }
+}
@@ -0,0 +1,145 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+public class KShortestPathsTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(KShortestPathsTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+  }
+
+  @Test
+  public void smallGraphTest() {
+    WGraph<String> g = new WGraph<String>();
+    for (String s : new String[] {"C", "D", "E", "F", "G", "H"}) g.addVertex(s);
+    g.addEdge("C", "D", 3.);
+    g.addEdge("C", "E", 2.);
+    g.addEdge("D", "F", 4.);
+    g.addEdge("E", "D", 1.);
+    g.addEdge("E", "F", 2.);
+    g.addEdge("E", "G", 3.);
+    g.addEdge("F", "G", 2.);
+    g.addEdge("F", "H", 1.);
+    g.addEdge("G", "H", 2.);
+    ArrayList<Pair<LinkedList<String>, Double>> paths = KShortestPaths.paths(g, "C", "H", 3);
+    assertEquals(3, paths.size());
+    assertEquals(Arrays.asList("C", "E", "F", "H"), paths.get(0).getObj());
+    assertEquals(5., paths.get(0).getValue(), 0.);
+    assertEquals(Arrays.asList("C", "E", "G", "H"), paths.get(1).getObj());
+    assertEquals(7., paths.get(1).getValue(), 0.);
+    assertEquals(Arrays.asList("C", "D", "F", "H"), paths.get(2).getObj());
+    assertEquals(8., paths.get(2).getValue(), 0.);
+
+    // there are only 7 loopless paths
+    assertEquals(7, KShortestPaths.paths(g, "C", "H", 10).size());
+    // no path, or an edge shut down
+    assertTrue(KShortestPaths.paths(g, "H", "C", 3).isEmpty());
+    g.setWeight("F", "H", Double.POSITIVE_INFINITY);
+    assertEquals(Arrays.asList("C", "E", "G", "H"), KShortestPaths.paths(g, "C", "H", 1).get(0).getObj());
+  }
+
+  // From a0 to aT: either a direct but expensive edge, or one of the 2^n cheap paths through the ladder ax1, ay1, ..., axn, ayn,
+  // which all end with two correspondances, by z
+  private static WGraph<String> ladder(int n) {
+    WGraph<String> g = new WGraph<String>();
+    for (String s : new String[] {"a0", "aT", "z"}) g.addVertex(s);
+    for (int i = 1; i <= n; i++) {
+      g.addVertex("ax" + i);
+      g.addVertex("ay" + i);
+    }
+    g.addEdge("a0", "aT", 1000.);
+    g.addEdge("a0", "ax1", 1.);
+    g.addEdge("a0", "ay1", 1.);
+    for (int i = 1; i < n; i++) {
+      for (String u : new String[] {"ax" + i, "ay" + i}) {
+        g.addEdge(u, "ax" + (i + 1), 1.);
+        g.addEdge(u, "ay" + (i + 1), 1.);
+      }
+    }
+    g.addEdge("ax" + n, "z", 1.);
+    g.addEdge("ay" + n, "z", 1.);
+    g.addEdge("z", "aT", 1.);
+    return g;
+  }
+
+  @Test(timeout = 10000)
+  public void transfersCapTest() {
+    BiPredicate<String, String> sameLine = (u, v) -> u.charAt(0) == v.charAt(0);
+    // with few cheap paths, the one without correspondance is found after them
+    ArrayList<Pair<LinkedList<String>, Double>> paths = KShortestPaths.paths(ladder(2), "a0", "aT", 2, Double.POSITIVE_INFINITY, sameLine, 1);
+    assertEquals(2, paths.size());
+    assertEquals(4., paths.get(0).getValue(), 0.);
+    assertEquals(Arrays.asList("a0", "aT"), paths.get(1).getObj());
+
+    // with too many of them, the search stops after a bounded number of paths instead of enumerating them
+    paths = KShortestPaths.paths(ladder(20), "a0", "aT", 2, Double.POSITIVE_INFINITY, sameLine, 1);
+    assertEquals(1, paths.size());
+    assertEquals(22., paths.get(0).getValue(), 0.);
+  }
+
+  @Test
+  public void boundsTest() {
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    BiPredicate<Station, Station> sameLine = Station::sameLine;
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    Dijkstra.shortestPath(w, laumS, mdiE, prev, dist);
+
+    ArrayList<Pair<LinkedList<Station>, Double>> paths = KShortestPaths.paths(w, laumS, mdiE, 10, 1.2, sameLine, 3);
+    assertFalse(paths.isEmpty());
+    assertEquals(dist.get(mdiE), paths.get(0).getValue(), 1e-9);
+    HashSet<List<Station>> distinct = new HashSet<List<Station>>();
+    for (int i = 0; i < paths.size(); i++) {
+      LinkedList<Station> path = paths.get(i).getObj();
+      assertTrue(distinct.add(path));
+      assertEquals(path.size(), new HashSet<Station>(path).size());
+      assertEquals(laumS, path.getFirst());
+      assertEquals(mdiE, path.getLast());
+      assertTrue(paths.get(i).getValue() <= 1.2 * dist.get(mdiE));
+      if (i > 0) assertTrue(paths.get(i - 1).getValue() <= paths.get(i).getValue());
+      int transfers = 0;
+      double cost = 0.;
+      Station last = null;
+      for (Station s : path) {
+        if (last != null) {
+          if (! sameLine.test(last, s)) transfers++;
+          cost += w.weight(last, s);
+        }
+        last = s;
+      }
+      assertEquals(cost, paths.get(i).getValue(), 1e-9);
+      if (i > 0) assertTrue(transfers <= 3);
+    }
+  }
+
+  @Test
+  public void preprocessingTest() {
+    ContractionHierarchy<Station> hierarchy = new ContractionHierarchy<Station>(w);
+    Landmarks<Station> landmarks = new Landmarks<Station>(w, 8);
+    BiPredicate<Station, Station> sameLine = Station::sameLine;
+    String[][] trips = {{"LAUMIERE", "MAIRIE D'ISSY"}, {"CHATELET", "NATION"}, {"PORTE DE CLIGNANCOURT", "GALLIENI"}};
+    for (String[] trip : trips) {
+      Station s = new Station(trip[0], "Meta Station Start");
+      Station t = new Station(trip[1], "Meta Station End");
+      ArrayList<Pair<LinkedList<Station>, Double>> expected = KShortestPaths.paths(w, s, t, 10, 1.2, sameLine, 3);
+      ArrayList<Pair<LinkedList<Station>, Double>> withHierarchy = KShortestPaths.paths(w, hierarchy, landmarks, s, t, 10, 1.2, sameLine, 3);
+      ArrayList<Pair<LinkedList<Station>, Double>> withLandmarks = KShortestPaths.paths(w, null, landmarks, s, t, 10, 1.2, sameLine, 3);
+      // the paths may differ in case of a tie, not their costs
+      assertEquals(expected.size(), withHierarchy.size());
+      assertEquals(expected.size(), withLandmarks.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getValue(), withHierarchy.get(i).getValue(), 1e-9);
+        assertEquals(expected.get(i).getValue(), withLandmarks.get(i).getValue(), 1e-9);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+
+public class LandmarksTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+  static Landmarks<Station> landmarks;
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(LandmarksTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+    landmarks = new Landmarks<Station>(w, 8);
+  }
+
+  @Test
+  public void landmarksTest() {
+    assertEquals(8, landmarks.getLandmarks().size());
+    assertEquals(8, new HashSet<Station>(landmarks.getLandmarks()).size());
+  }
+
+  @Test
+  public void lowerBoundTest() {
+    HashMap<Station, Station> prev = new HashMap<Station, Station>();
+    HashMap<Station, Double> dist = new HashMap<Station, Double>();
+    ArrayList<Station> stations = new ArrayList<Station>(w.getVertices());
+    Random r = new Random(3);
+    for (int i = 0; i < 20; i++) {
+      Station s = stations.get(r.nextInt(stations.size()));
+      Dijkstra.shortestPath(w, s, prev, dist);
+      for (Station t : stations) {
+        assertTrue(landmarks.lowerBound(s, t) <= dist.get(t));
+      }
+      assertEquals(0.0, landmarks.lowerBound(s, s), 0.0);
+    }
+    assertEquals(0.0, landmarks.lowerBound(new Station("NOWHERE", "1"), stations.get(0)), 0.0);
+  }
+
+  @Test
+  public void isLowerBoundOfTest() {
+    WGraph<Station> g = w.clone();
+    assertTrue(landmarks.isLowerBoundOf(g));
+
+    Station a = new Station("CHATELET", "14");
+    Station b = new Station("PYRAMIDES", "14");
+    g.setWeight(a, b, g.weight(a, b) * 2);
+    assertTrue(landmarks.isLowerBoundOf(g));
+    g.setWeight(b, a, Double.POSITIVE_INFINITY);
+    assertTrue(landmarks.isLowerBoundOf(g));
+    g.removeEdge(a, b);
+    assertTrue(landmarks.isLowerBoundOf(g));
+
+    g.setWeight(b, a, 1.0);
+    assertFalse(landmarks.isLowerBoundOf(g));
+    g.setWeight(b, a, w.weight(b, a));
+    assertTrue(landmarks.isLowerBoundOf(g));
+
+    g.addEdge(a, new Station("SAINT-LAZARE", "14"), 1.0);
+    assertFalse(landmarks.isLowerBoundOf(g));
+  }
+
+  @Test
+  public void cacheTest() {
+    Configuration.loadFrom(LandmarksTest.class.getResourceAsStream("/cities.json"));
+    Trafics.initTrafics();
+    Landmarks<Station> l = LandmarkCache.get("Lille");
+    assertNotNull(l);
+    assertSame(l, LandmarkCache.get("Lille"));
+
+    Trafics.addPerturbation("Lille", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0));
+    assertSame(l, LandmarkCache.get("Lille"));
+    Trafics.addPerturbation("Lille", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("2", 0.5));
+    assertNull(LandmarkCache.get("Lille"));
+    Trafics.revertPerturbation("Lille", "Line 2 slowed down by 0.5");
+    assertSame(l, LandmarkCache.get("Lille"));
+    Trafics.revertPerturbation("Lille", "Line 1 slowed down by 2.0");
+  }
+}
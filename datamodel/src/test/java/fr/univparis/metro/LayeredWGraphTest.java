@@ -0,0 +1,48 @@
+package fr.univparis.metro;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LayeredWGraphTest {
+
+  static WGraph<String> g;
+
+  @BeforeClass
+  public static void init() {
+    g = new WGraph<String>();
+    g.addVertex("a");
+    g.addVertex("b");
+    g.addVertex("c");
+    g.addEdge("a", "b", 2.0);
+    g.addEdge("b", "c", 3.0);
+    g.addEdge("c", "a", 0.0);
+  }
+
+  @Test
+  public void weightTest() {
+    LayeredWGraph<String> l = new LayeredWGraph<String>(g);
+    assertEquals(2.0, l.weight("a", "b"), 0.0);
+    assertTrue(l.weight("a", "c").isNaN());
+
+    LayeredWGraph.Layer<String> twice = (s, p) -> 2.;
+    LayeredWGraph.Layer<String> shutdown = (s, p) -> s.equals("c") ? Double.POSITIVE_INFINITY : 1.;
+    LayeredWGraph<String> l2 = l.withLayer(twice).withLayer(shutdown);
+    assertEquals(4.0, l2.weight("a", "b"), 0.0);
+    assertEquals(6.0, l2.weight("b", "c"), 0.0);
+    // an edge of weight 0 is shut down too
+    assertEquals(Double.POSITIVE_INFINITY, l2.weight("c", "a"), 0.0);
+    assertEquals(2, l2.getLayers().size());
+    assertEquals(2.0, l.weight("a", "b"), 0.0);
+
+    LayeredWGraph<String> l3 = l2.withoutLayer(twice);
+    assertEquals(2.0, l3.weight("a", "b"), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, l3.weight("c", "a"), 0.0);
+    assertEquals(l2.withoutLayer(shutdown).clone().weight("b", "c"), l.withLayer(twice).weight("b", "c"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void immutableTest() {
+    new LayeredWGraph<String>(g).setWeight("a", "b", 1.0);
+  }
+
+}
@@ -246,4 +246,66 @@ public class LimitedConnexionSearchTest{
         assertArrayEquals(b, direct);
         assertArrayEquals(v, via);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void flatFloydTest(){
+        int n = direct.length;
+        double[] flatDirect = new double[n * n];
+        int[] flatVia = new int[n * n];
+        int[] flatIntermediate = new int[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                flatDirect[i * n + j] = direct[i][j];
+                flatVia[i * n + j] = (via[i][j] == null) ? -1 : via[i][j];
+                flatIntermediate[i * n + j] = intermediate[i][j];
+            }
+        }
+        double[] d = LimitedConnectionSearch.floyd(flatDirect, n);
+        LimitedConnectionSearch.floyd(flatDirect, flatVia, flatIntermediate, n);
+        LimitedConnectionSearch.floyd(direct, via, intermediate);
+
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                assertEquals(direct[i][j], flatDirect[i * n + j], 0.0);
+                assertEquals((via[i][j] == null) ? -1 : (int) via[i][j], flatVia[i * n + j]);
+                assertEquals((int) intermediate[i][j], flatIntermediate[i * n + j]);
+                assertTrue(d[i * n + j] <= flatDirect[i * n + j]);
+            }
+        }
+        assertEquals(4.0, d[2 * n + 0], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, d[5 * n + 0], 0.0);
+    }
+
+    @Test
+    public void parallelFloydTest(){
+        int n = 150;
+        java.util.Random r = new java.util.Random(42);
+        double[] direct = new double[n * n];
+        int[] via = new int[n * n];
+        int[] intermediate = new int[n * n];
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                boolean edge = i == j || r.nextInt(20) == 0;
+                direct[i * n + j] = (i == j) ? 0.0 : (edge ? 30.0 * (1 + r.nextInt(10)) : Double.POSITIVE_INFINITY);
+                via[i * n + j] = edge ? i : -1;
+                intermediate[i * n + j] = (i == j) ? 0 : (edge ? 1 : Integer.MAX_VALUE);
+            }
+        }
+        double[] directP = direct.clone();
+        int[] viaP = via.clone();
+        int[] intermediateP = intermediate.clone();
+        double[] single = LimitedConnectionSearch.floyd(direct, n);
+        double[] singleP = LimitedConnectionSearch.parallelFloyd(direct, n);
+        LimitedConnectionSearch.floyd(direct, via, intermediate, n);
+        LimitedConnectionSearch.parallelFloyd(directP, viaP, intermediateP, n, 16);
+
+        assertArrayEquals(single, singleP, 0.0);
+        assertArrayEquals(direct, directP, 0.0);
+        assertArrayEquals(intermediate, intermediateP);
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                assertEquals(via[i * n + j] == -1, viaP[i * n + j] == -1);
+            }
+        }
+    }
+}
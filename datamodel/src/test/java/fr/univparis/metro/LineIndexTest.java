@@ -0,0 +1,63 @@
+package fr.univparis.metro;
+
+import java.util.LinkedList;
+import java.util.List;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LineIndexTest {
+
+  static WGraph<Station> g;
+  static LineIndex index;
+
+  @BeforeClass
+  public static void loadFile() {
+    g = Parser.loadFrom(LineIndexTest.class.getResourceAsStream("/paris.txt"));
+    index = new LineIndex(g);
+  }
+
+  @Test
+  public void linesTest() {
+    assertEquals(16, index.getLines().size());
+    assertFalse(index.getLines().contains("Meta Station Start"));
+    assertTrue(index.getStations("42").isEmpty());
+  }
+
+  @Test
+  public void stationsTest() {
+    List<Station> l1 = index.getStations("1");
+    assertEquals(25, l1.size());
+    // the stations are listed from a terminus to the other one
+    assertEquals(1, index.lineNeighbors(l1.get(0)).size());
+    assertEquals(1, index.lineNeighbors(l1.get(24)).size());
+    for (int i = 0; i + 1 < l1.size(); i++) {
+      assertTrue(index.lineNeighbors(l1.get(i)).contains(l1.get(i + 1)));
+    }
+    assertEquals(48, index.getEdges("1").size());
+
+    // the branches of the forks and cycles are in the line
+    int n = 0;
+    for (Station s : g.getVertices()) if (s.getLine().equals("7BIS")) n++;
+    assertEquals(n, index.getStations("7BIS").size());
+    for (Pair<Station, Station> e : index.getEdges("7BIS")) {
+      assertEquals("7BIS", e.getObj().getLine());
+      assertEquals("7BIS", e.getValue().getLine());
+      assertFalse(g.weight(e.getObj(), e.getValue()).isNaN());
+    }
+  }
+
+  @Test
+  public void segmentTest() {
+    Station j = new Station("JAURES", "5");
+    Station l = new Station("LAUMIERE", "5");
+    Station o = new Station("OURCQ", "5");
+    LinkedList<Station> seg = index.segment(j, o);
+    assertEquals(3, seg.size());
+    assertEquals(j, seg.get(0));
+    assertEquals(l, seg.get(1));
+    assertEquals(o, seg.get(2));
+    assertEquals(1, index.segment(j, j).size());
+    assertTrue(index.segment(j, new Station("NATION", "1")).isEmpty());
+  }
+
+}
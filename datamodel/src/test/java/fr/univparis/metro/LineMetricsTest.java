@@ -0,0 +1,55 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LineMetricsTest {
+
+  static WGraph<Station> g;
+  static LineIndex lines;
+
+  @BeforeClass
+  public static void loadFile() {
+    g = Parser.loadFrom(LineMetricsTest.class.getResourceAsStream("/paris.txt"));
+    lines = new LineIndex(g);
+  }
+
+  @Test
+  public void timesTest() {
+    LineMetrics m = new LineMetrics(g, lines);
+    assertEquals(16, m.getTimes().size());
+    assertEquals((Double) 2160., m.getTime("1"));
+    assertEquals((Double) 270., m.getTime("3BIS"));
+    assertEquals((Double) 720., m.getTime("14"));
+    assertNull(m.getTime("42"));
+    assertEquals(1993, m.getAverageTime());
+    assertEquals("8", m.getLongestLine().getObj());
+    assertEquals((Double) 3240., m.getLongestLine().getValue());
+    assertEquals("3BIS", m.getShortestLine().getObj());
+    assertEquals((Double) 270., m.getShortestLine().getValue());
+  }
+
+  @Test
+  public void stationsTest() {
+    LineMetrics m = new LineMetrics(g);
+    assertEquals(25, m.getNbStations("1"));
+    assertEquals(4, m.getNbStations("3BIS"));
+    assertEquals(0, m.getNbStations("42"));
+    assertEquals(24, m.getAverageNbOfStations());
+    assertEquals("7", m.getExtremumLine(true));
+    assertEquals("3BIS", m.getExtremumLine(false));
+  }
+
+  @Test
+  public void perturbedGraphTest() {
+    // the index of the initial graph is used with the weights of a perturbed one
+    LayeredWGraph<Station> slow = new LayeredWGraph<Station>(g).withLayer(Trafics.lineSlowDown(lines, "1", 2.));
+    LineMetrics m = new LineMetrics(slow, lines);
+    assertEquals((Double) 4320., m.getTime("1"));
+    assertEquals((Double) 270., m.getTime("3BIS"));
+    assertEquals("1", m.getLongestLine().getObj());
+
+    LineMetrics shut = new LineMetrics(slow.withLayer(Trafics.lineShutdown(lines, "14")), lines);
+    assertEquals((Double) Double.POSITIVE_INFINITY, shut.getTime("14"));
+  }
+
+}
@@ -0,0 +1,74 @@
+package fr.univparis.metro;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.BeforeClass;
+
+public class LiveStatisticsTest {
+
+  @BeforeClass
+  public static void initTest() {
+    Configuration.loadFrom(Trafics.class.getResourceAsStream("/cities.json"));
+    Trafics.initTrafics();
+  }
+
+  // the incremental result must be the one computed from scratch
+  private static void assertSameAsFromScratch(String city) {
+    LiveStatistics.Snapshot live = LiveStatistics.get(city);
+    LiveStatistics.evict(city);
+    LiveStatistics.Snapshot scratch = LiveStatistics.get(city);
+    assertEquals(scratch.getVersion(), live.getVersion());
+    assertEquals(scratch.getLongestTrip().getValue(), live.getLongestTrip().getValue());
+    assertEquals(scratch.getLongestTrip().getObj().getObj(), live.getLongestTrip().getObj().getObj());
+    assertEquals(scratch.getLongestTrip().getObj().getValue(), live.getLongestTrip().getObj().getValue());
+    assertEquals(scratch.getImpossibleTrips(), live.getImpossibleTrips());
+  }
+
+  @Test
+  public void longestTripTest() {
+    assertNull(LiveStatistics.get("Atlantis"));
+    LiveStatistics.Snapshot initial = LiveStatistics.get("Paris");
+    assertEquals(Trafics.getVersion("Paris"), initial.getVersion());
+    assertEquals((Double) 3270., initial.getLongestTrip().getValue());
+    assertEquals(0, initial.getImpossibleTrips());
+    int sources = initial.getUpdateCost();
+    assertTrue(sources > 0);
+    // nothing changes without a new version
+    assertSame(initial, LiveStatistics.get("Paris"));
+
+    try {
+      // only the trips using the line 3BIS are searched again
+      Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("3BIS", 2.0));
+      LiveStatistics.Snapshot slow = LiveStatistics.get("Paris");
+      assertEquals(Trafics.getVersion("Paris"), slow.getVersion());
+      assertEquals((Double) 3270., slow.getLongestTrip().getValue());
+      assertTrue(slow.getUpdateCost() < sources / 10);
+      assertSameAsFromScratch("Paris");
+
+      Trafics.addPerturbation("Paris", Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, 2.0);
+      // the correspondances are not slowed down
+      assertTrue(LiveStatistics.get("Paris").getLongestTrip().getValue() > 6000.);
+      assertSameAsFromScratch("Paris");
+
+      // the stations only served by the line 14 can't be reached anymore
+      Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SHUTDOWN, "14");
+      assertTrue(LiveStatistics.get("Paris").getImpossibleTrips() > 0);
+      assertTrue(LiveStatistics.get("Paris").getLongestTrip().getValue() < Double.POSITIVE_INFINITY);
+      assertSameAsFromScratch("Paris");
+
+      Trafics.revertPerturbation("Paris", "Line 14 shutdown");
+      assertEquals(0, LiveStatistics.get("Paris").getImpossibleTrips());
+      assertSameAsFromScratch("Paris");
+    }
+    finally {
+      Trafics.revertPerturbation("Paris", "Line 3BIS slowed down by 2.0");
+      Trafics.revertPerturbation("Paris", "Trafic is slowed down by 2.0 everywhere");
+      Trafics.revertPerturbation("Paris", "Line 14 shutdown");
+    }
+    assertEquals((Double) 3270., LiveStatistics.get("Paris").getLongestTrip().getValue());
+    assertEquals(initial.getLongestTrip().getObj().getObj(), LiveStatistics.get("Paris").getLongestTrip().getObj().getObj());
+    // the first snapshot is unchanged
+    assertEquals((Double) 3270., initial.getLongestTrip().getValue());
+  }
+
+}
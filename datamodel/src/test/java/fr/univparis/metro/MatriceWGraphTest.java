@@ -93,4 +93,32 @@ public class MatriceWGraphTest{
         assertEquals(i.get(3).getObj(), "PORTE DAUPHINE");
         assertEquals(i.get(3).getValue(), "2");
     }
+
+    @Test
+    public void flatMatricesTest(){
+        HashMap<String, MatriceWGraph> q = MatriceWGraph.initializeAllLineGraphs(g);
+        MatriceWGraph m = new MatriceWGraph(g, q);
+        int n = m.getDirect().length;
+        double[] direct = m.getFlatDirect();
+        int[] via = m.getFlatVia();
+        int[] intermediate = m.getFlatIntermediate();
+        Station[] stations = m.getViaStations();
+        for(int i = 0; i < n; i++){
+            for(int j = 0; j < n; j++){
+                assertEquals(m.getDirect()[i][j], direct[i * n + j], 0.0);
+                assertEquals(m.getVia()[i][j], (via[i * n + j] == -1) ? null : stations[via[i * n + j]]);
+                assertEquals((int) m.getIntermediate()[i][j], intermediate[i * n + j]);
+            }
+        }
+
+        LimitedConnectionSearch.floyd(m.getDirect(), m.getVia(), m.getIntermediate());
+        MatriceWGraph flat = FloydCache.compute(g);
+        for(int i = 0; i < n; i++){
+            assertArrayEquals(m.getDirect()[i], flat.getDirect()[i]);
+            assertArrayEquals(m.getIntermediate()[i], flat.getIntermediate()[i]);
+            for(int j = 0; j < n; j++) assertEquals(m.getVia()[i][j] == null, flat.getVia()[i][j] == null);
+        }
+        ArrayList<Pair<String, String>> l = LimitedConnectionSearch.getPath(flat, "PORTE DAUPHINE", "OLYMPIADES");
+        assertEquals("PORTE DAUPHINE", l.get(l.size() - 1).getObj());
+    }
 }
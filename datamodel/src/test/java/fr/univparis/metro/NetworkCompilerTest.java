@@ -0,0 +1,68 @@
+package fr.univparis.metro;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.apache.commons.io.IOUtils;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class NetworkCompilerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  static byte[] plan;
+  static WGraph<Station> g;
+
+  @BeforeClass
+  public static void loadFile() throws IOException {
+    plan = IOUtils.toByteArray(NetworkCompilerTest.class.getResourceAsStream("/paris.txt"));
+    g = Parser.loadFrom(new ByteArrayInputStream(plan));
+  }
+
+  @Test
+  public void compileAndLoadTest() throws IOException {
+    File f = folder.newFile("paris.bin");
+    long checksum = NetworkCompiler.checksum(plan);
+    NetworkCompiler.compile(g, checksum, f);
+    StationRegistry registry = new StationRegistry();
+    WGraph<Station> h = NetworkCompiler.load(f, checksum, registry);
+
+    assertEquals(g.nbVertex(), h.nbVertex());
+    assertEquals(g.nbVertex(), registry.size());
+    for (Station s : g.getVertices()) {
+      assertTrue(h.containsVertex(s));
+      assertEquals(g.neighbors(s), h.neighbors(s));
+      for (Station n : g.neighbors(s)) assertEquals(g.weight(s, n), h.weight(s, n));
+    }
+    Station nation = registry.lookup("NATION", "2");
+    assertTrue(nation.getId() >= 0);
+    assertTrue(h.containsVertex(nation));
+  }
+
+  @Test(expected = IOException.class)
+  public void staleFileTest() throws IOException {
+    File f = folder.newFile("paris.bin");
+    NetworkCompiler.compile(g, NetworkCompiler.checksum(plan), f);
+    NetworkCompiler.load(f, NetworkCompiler.checksum(plan) + 1, new StationRegistry());
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedFileTest() throws IOException {
+    File f = folder.newFile("paris.bin");
+    NetworkCompiler.compile(g, NetworkCompiler.checksum(plan), f);
+    try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+      raf.setLength(raf.length() / 2);
+    }
+    NetworkCompiler.load(f, NetworkCompiler.checksum(plan), new StationRegistry());
+  }
+
+  @Test
+  public void compiledFileTest() {
+    assertEquals("paris.bin", NetworkCompiler.compiledFile("paris.txt").getName());
+  }
+
+}
@@ -0,0 +1,73 @@
+package fr.univparis.metro;
+import org.junit.*;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+public class ParetoSearchTest {
+
+  static WGraph<Station> w = new WGraph<Station>();
+  static BiPredicate<Station, Station> sameLine = (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station");
+
+  @BeforeClass
+  public static void loadFile() {
+    try {
+      w = Parser.loadFrom(ParetoSearchTest.class.getResourceAsStream("/paris.txt"));
+    } catch(Exception e) {e.printStackTrace();}
+  }
+
+  @Test
+  public void frontTest() {
+    Station laumS = new Station("LAUMIERE", "Meta Station Start");
+    Station mdiE = new Station("MAIRIE D'ISSY", "Meta Station End");
+    ArrayList<ParetoSearch.Label<Station>> front = ParetoSearch.front(w, laumS, mdiE, sameLine);
+    assertFalse(front.isEmpty());
+    assertEquals(2340.0, front.get(front.size() - 1).getTime(), 0.0);
+    for (int i = 1; i < front.size(); i++) {
+      assertTrue(front.get(i - 1).getTransfers() < front.get(i).getTransfers());
+      assertTrue(front.get(i - 1).getTime() > front.get(i).getTime());
+    }
+    LinkedList<Station> path = front.get(0).getPath();
+    assertEquals(laumS, path.getFirst());
+    assertEquals(mdiE, path.getLast());
+  }
+
+  @Test
+  public void bouarahTest() {
+    HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<Pair<Station, Integer>, Pair<Station, Integer>>();
+    HashMap<Pair<Station, Integer>, Double> dist = new HashMap<Pair<Station, Integer>, Double>();
+    ArrayList<Station> starts = new ArrayList<Station>();
+    ArrayList<Station> ends = new ArrayList<Station>();
+    for (Station s : w.getVertices()) {
+      if (s.getLine().equals("Meta Station Start")) starts.add(s);
+      if (s.getLine().equals("Meta Station End")) ends.add(s);
+    }
+    Random r = new Random(17);
+    for (int i = 0; i < 5; i++) {
+      Station s = starts.get(r.nextInt(starts.size()));
+      BouarahAlgorithm.shortestPath(w, s, 3, sameLine, prev, dist);
+      for (Station t : ends) {
+        ArrayList<ParetoSearch.Label<Station>> front = ParetoSearch.front(w, s, t, sameLine, 3);
+        for (int limit = 0; limit <= 3; limit++) {
+          // the fastest itinerary with at most limit correspondances
+          double expected = Double.POSITIVE_INFINITY;
+          for (int k = 0; k <= limit; k++) expected = Math.min(expected, dist.get(new Pair<Station, Integer>(t, k)));
+          double actual = Double.POSITIVE_INFINITY;
+          for (ParetoSearch.Label<Station> l : front) if (l.getTransfers() <= limit) actual = l.getTime();
+          assertEquals(expected, actual, 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void noPathTest() {
+    WGraph<Station> g = new WGraph<Station>();
+    Station a = new Station("A", "1");
+    Station b = new Station("B", "1");
+    g.addVertex(a);
+    g.addVertex(b);
+    g.addEdge(a, b, Double.POSITIVE_INFINITY);
+    assertTrue(ParetoSearch.front(g, a, b, sameLine).isEmpty());
+  }
+}
@@ -121,4 +121,25 @@ public class ParserTest {
 
   }
 
+
+  @Test
+  public void manyLinesTest() {
+    // every line goes through the same stations: each station has a correspondance with all the other lines
+    int nbLines = 150;
+    int nbStations = 20;
+    StringBuilder sb = new StringBuilder();
+    for (int l = 0; l < nbLines; l++) {
+      sb.append("Ligne " + l + "\n\n");
+      for (int i = 0; i < nbStations; i++) sb.append("STATION " + i + "\n\n");
+      sb.append("--\n");
+    }
+    WGraph<Station> h = Parser.loadFrom(new java.io.ByteArrayInputStream(sb.toString().getBytes()));
+    assertEquals(nbStations * (nbLines + 2), h.nbVertex());
+    Station s = new Station("STATION 5", "42");
+    // two neighbors on the line, the correspondances and the meta station end
+    assertEquals(2 + (nbLines - 1) + 1, h.neighbors(s).size());
+    assertEquals(inStationWieght, h.weight(s, new Station("STATION 5", "0")));
+    assertEquals(inStationWieght, h.weight(new Station("STATION 5", "149"), s));
+  }
+
 }
@@ -0,0 +1,72 @@
+package fr.univparis.metro;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.junit.Before;
+
+public class StationRegistryTest {
+
+  StationRegistry registry;
+
+  @Before
+  public void initRegistry() {
+    registry = new StationRegistry();
+  }
+
+  @Test
+  public void internTest() {
+    Station a = registry.intern("CHATELET", "14");
+    Station b = registry.intern("CHATELET", "4");
+    assertSame(a, registry.intern("CHATELET", "14"));
+    assertSame(a, registry.intern(new Station("CHATELET", "14")));
+    assertNotSame(a, b);
+    assertEquals(0, a.getId());
+    assertEquals(1, b.getId());
+    assertSame(b, registry.get(1));
+    assertEquals(2, registry.size());
+  }
+
+  @Test
+  public void lookupTest() {
+    Station a = registry.intern("CHATELET", "14");
+    assertSame(a, registry.lookup("CHATELET", "14"));
+    Station c = registry.lookup("PYRAMIDES", "14");
+    assertEquals(-1, c.getId());
+    assertEquals(1, registry.size());
+  }
+
+  @Test
+  public void equalsTest() {
+    Station a = registry.intern("CHATELET", "14");
+    Station b = registry.intern("CHATELET", "4");
+    Station c = new Station("CHATELET", "14");
+    assertFalse(a.equals(b));
+    assertTrue(a.equals(c));
+    assertTrue(c.equals(a));
+    assertEquals(a.hashCode(), c.hashCode());
+    assertTrue(a.equals(new StationRegistry().intern("CHATELET", "14")));
+  }
+
+  @Test
+  public void sameLineTest() {
+    Station a = registry.intern("CHATELET", "14");
+    Station b = registry.intern("CHATELET", "4");
+    Station p = registry.intern("PYRAMIDES", "14");
+    Station m = registry.intern("CHATELET", "Meta Station Start");
+    assertTrue(m.isMeta());
+    assertFalse(a.isMeta());
+    assertTrue(Station.sameLine(a, p));
+    assertFalse(Station.sameLine(a, b));
+    assertTrue(Station.sameLine(m, b));
+    assertTrue(Station.sameLine(b, m));
+  }
+
+  @Test
+  public void parserTest() {
+    WGraph<Station> g = Parser.loadFrom(StationRegistryTest.class.getResourceAsStream("/paris.txt"), registry);
+    for (Station s : g.getVertices()) {
+      assertSame(s, registry.get(s.getId()));
+      for (Station n : g.neighbors(s)) assertSame(n, registry.lookup(n.getName(), n.getLine()));
+    }
+  }
+}
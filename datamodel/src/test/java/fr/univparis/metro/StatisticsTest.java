@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 import java.io.*;
 import java.lang.Double;
 import java.util.HashMap;
+import java.util.function.BiPredicate;
+import java.util.concurrent.ForkJoinPool;
 
 public class StatisticsTest{
     static WGraph<Station> g;
@@ -25,11 +27,64 @@ public class StatisticsTest{
       assertTrue(s1.equals("CRETEIL - PREFECTURE") || s2.equals("CRETEIL - PREFECTURE"));
     }
 
+    @Test
+    public void mostDistantStationsPoolsTest(){
+      // the result doesn't depend on the number of threads, even in case of a tie
+      for (String network : new String[] {"/paris.txt", "/metroLyon.txt", "/metroToulouse.txt"}) {
+        WGraph<Station> w = Parser.loadFrom(StatisticsTest.class.getResourceAsStream(network));
+        Pair<Pair<Station, Station>, Double> expected = Statistics.mostDistantStations(w, (s -> !s.getLine().equals("Meta Station Start")), (t -> t.getLine().equals("Meta Station End")), new ForkJoinPool(1));
+        for (int threads : new int[] {2, 3, 8}) {
+          Pair<Pair<Station, Station>, Double> res = Statistics.mostDistantStations(w, (s -> !s.getLine().equals("Meta Station Start")), (t -> t.getLine().equals("Meta Station End")), new ForkJoinPool(threads));
+          assertEquals(expected.getValue(), res.getValue());
+          assertEquals(expected.getObj().getObj(), res.getObj().getObj());
+          assertEquals(expected.getObj().getValue(), res.getObj().getValue());
+        }
+      }
+    }
+
     @Test
     public void minimumCorrespondenceTest(){
       assertEquals(3, Statistics.minimumCorrespondence(g, (s -> s.getLine().equals("Meta Station Start")), s -> s.getLine().equals("Meta Station End") , (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station")));
     }
 
+    @Test
+    public void minimumCorrespondenceWitnessTest(){
+      BiPredicate<Station, Station> sameLine = Station::sameLine;
+      Pair<Pair<Station, Station>, Integer> res = Statistics.minimumCorrespondenceWitness(g, (s -> s.getLine().equals("Meta Station Start")), s -> s.getLine().equals("Meta Station End"), sameLine);
+      assertEquals((Integer) 3, res.getValue());
+      Station start = res.getObj().getObj();
+      Station end = res.getObj().getValue();
+      assertEquals("Meta Station Start", start.getLine());
+      assertEquals("Meta Station End", end.getLine());
+      // the witness really needs 3 correspondences
+      HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prev = new HashMap<>();
+      HashMap<Pair<Station, Integer>, Double> dist = new HashMap<>();
+      BouarahAlgorithm.shortestPath(g, start, 3, sameLine, prev, dist);
+      for (int i = 0; i < 3; i++) assertEquals((Double) Double.POSITIVE_INFINITY, dist.get(new Pair<Station, Integer>(end, i)));
+      assertTrue(dist.get(new Pair<Station, Integer>(end, 3)) < Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void minimumCorrespondenceSmallGraphTest(){
+      // A and B on a line, C and D on another one, E can't be reached
+      WGraph<String> w = new WGraph<String>();
+      for (String s : new String[] {"A1", "B1", "B2", "C2", "E3"}) w.addVertex(s);
+      w.addEdge("A1", "B1", 1.);
+      w.addEdge("B1", "A1", 1.);
+      w.addEdge("B1", "B2", 1.);
+      w.addEdge("B2", "C2", 1.);
+      BiPredicate<String, String> sameLine = (s1, s2) -> s1.charAt(1) == s2.charAt(1);
+      Pair<Pair<String, String>, Integer> res = Statistics.minimumCorrespondenceWitness(w, (s -> true), (s -> true), sameLine);
+      assertEquals((Integer) 1, res.getValue());
+      // from the first line to the second one
+      assertTrue(res.getObj().getObj().endsWith("1"));
+      assertTrue(res.getObj().getValue().endsWith("2"));
+
+      // a shut down edge is ignored
+      w.setWeight("B1", "B2", Double.POSITIVE_INFINITY);
+      assertEquals(0, Statistics.minimumCorrespondence(w, (s -> true), (s -> true), sameLine));
+    }
+
     @Test
     public void extremumLineTest() {
       assertEquals("3BIS", Statistics.extremumLine(g, false));
@@ -1,7 +1,13 @@
 package fr.univparis.metro;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
 import java.util.HashMap;
+import org.apache.commons.io.IOUtils;
 import static org.junit.Assert.*;
 import org.junit.Test;
 import org.junit.BeforeClass;;
@@ -15,31 +21,142 @@ public class TraficsTest {
 
   }
 
+  @Test
+  public void corruptedCompiledFileTest() throws IOException {
+    byte[] plan = IOUtils.toByteArray(Trafics.class.getResourceAsStream("/Orlyval.txt"));
+    WGraph<Station> g = Parser.loadFrom(new ByteArrayInputStream(plan));
+    g.addVertex(new Station("NOWHERE", "1"));
+    File dir = Files.createTempDirectory("compiled").toFile();
+    File f = new File(dir, "Orlyval.bin");
+    NetworkCompiler.compile(g, NetworkCompiler.checksum(plan), f);
+    // every station is read before the end of the file is reached
+    try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+      raf.setLength(raf.length() - 1);
+    }
+    String old = System.getProperty("metro.compiled");
+    System.setProperty("metro.compiled", dir.getPath());
+    try {
+      assertTrue(Trafics.unload("Orly"));
+      assertTrue(Trafics.getGraph("Orly").containsVertex(new Station("ANTONY", "1")));
+      // the stations interned by the failed load are not kept
+      assertTrue(Trafics.getRegistry("Orly").lookup("NOWHERE", "1").getId() < 0);
+      assertEquals(Trafics.getInitialGraph("Orly").nbVertex(), Trafics.getRegistry("Orly").size());
+    }
+    finally {
+      if (old == null) System.clearProperty("metro.compiled");
+      else System.setProperty("metro.compiled", old);
+      Trafics.unload("Orly");
+      f.delete();
+      dir.delete();
+    }
+  }
+
   @Test
   public void lineShutdownTest() {
-    WGraph<Station> g = Trafics.getGraph("Paris");
-    WGraph<Station> revert;
-    revert = Trafics.lineShutdown("Paris", "1");
+    WGraph<Station> initial = Trafics.getInitialGraph("Paris");
+    LayeredWGraph.Layer<Station> layer = Trafics.lineShutdown(Trafics.getLineIndex("Paris"), "1");
+    WGraph<Station> g = new LayeredWGraph<Station>(initial).withLayer(layer);
     Station b = new Station("BASTILLE", "1");
     Station gdl = new Station("GARE DE LYON", "1");
     assertEquals(Double.POSITIVE_INFINITY, g.weight(b, gdl), 0.0);
     assertEquals(Double.POSITIVE_INFINITY, g.weight(gdl, b), 0.0);
-
-    assertEquals(25, revert.nbVertex());
-    for (Station s : revert.getVertices()) {
-      assertTrue(revert.neighbors(s).size() > 0);
-      for (Station n : revert.neighbors(s)) {
-        assertEquals(90.0, revert.weight(s, n), 0.0);
+    assertEquals(60.0, g.weight(b, new Station("BASTILLE", "5")), 0.0);
+    // the original graph is not modified
+    assertEquals(90.0, initial.weight(b, gdl), 0.0);
+
+    // only the edges of the line are shut down
+    for (Station s : g.getVertices()) {
+      for (Station n : g.neighbors(s)) {
+        boolean onLine = s.getLine().equals("1") && n.getLine().equals("1");
+        assertEquals(onLine, g.weight(s, n) == Double.POSITIVE_INFINITY);
       }
     }
+  }
 
+  @Test
+  public void overlappingPerturbationsTest() {
+    Station b = new Station("BASTILLE", "1");
+    Station gdl = new Station("GARE DE LYON", "1");
+    Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0));
+    Trafics.addPerturbation("Paris", Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, 2.0);
+    assertEquals(360.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+    Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SHUTDOWN, "1");
+    assertEquals(Double.POSITIVE_INFINITY, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
 
-    g.apply(revert);
-    assertEquals(90.0, g.weight(b, gdl), 0.0);
-    assertEquals(90.0, g.weight(gdl, b), 0.0);
+    // the perturbations are reverted in another order than they were added
+    Trafics.revertPerturbation("Paris", "Line 1 slowed down by 2.0");
+    assertEquals(Double.POSITIVE_INFINITY, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+    Trafics.revertPerturbation("Paris", "Line 1 shutdown");
+    assertEquals(180.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+    Trafics.revertPerturbation("Paris", "Trafic is slowed down by 2.0 everywhere");
+    assertEquals(90.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+    assertTrue(Trafics.getPerturbation("Paris").isEmpty());
+  }
 
+
+  @Test
+  public void batchTest() {
+    Station b = new Station("BASTILLE", "1");
+    Station gdl = new Station("GARE DE LYON", "1");
+    long version = Trafics.getVersion("Paris");
+    Trafics.Snapshot snapshot = Trafics.applyBatch("Paris", new Trafics.Batch()
+      .add(Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0))
+      .add(Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, 2.0)
+      .add(Trafics.Perturbation.LINE_SHUTDOWN, "14"));
+    // a single version for the whole batch
+    long batchVersion = Trafics.getVersion("Paris");
+    assertNotEquals(version, batchVersion);
+    assertEquals(batchVersion, snapshot.getVersion());
+    assertEquals(Trafics.getPerturbation("Paris"), snapshot.getPerturbations());
+    assertEquals(3, Trafics.getPerturbation("Paris").size());
+    assertEquals(360.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+
+    // nothing changes, the version stays the same
+    snapshot = Trafics.applyBatch("Paris", new Trafics.Batch().add(Trafics.Perturbation.LINE_SHUTDOWN, "14").revert("Unknown perturbation"));
+    assertEquals(batchVersion, Trafics.getVersion("Paris"));
+    assertEquals(batchVersion, snapshot.getVersion());
+    assertEquals(3, snapshot.getPerturbations().size());
+
+    Trafics.applyBatch("Paris", new Trafics.Batch()
+      .revert("Line 1 slowed down by 2.0")
+      .revert("Trafic is slowed down by 2.0 everywhere")
+      .revert("Line 14 shutdown"));
+    assertTrue(Trafics.getPerturbation("Paris").isEmpty());
+    assertEquals(90.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
   }
 
+  @Test
+  public void wrongBatchTest() {
+    Station b = new Station("BASTILLE", "1");
+    Station gdl = new Station("GARE DE LYON", "1");
+    long version = Trafics.getVersion("Paris");
+    WGraph<Station> g = Trafics.getGraph("Paris");
+    try {
+      Trafics.applyBatch("Paris", new Trafics.Batch()
+        .add(Trafics.Perturbation.LINE_SHUTDOWN, "1")
+        .add(Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, "twice"));
+      fail();
+    }
+    catch (IllegalArgumentException e) {}
+    // none of the perturbations of the batch is applied
+    assertEquals(version, Trafics.getVersion("Paris"));
+    assertSame(g, Trafics.getGraph("Paris"));
+    assertTrue(Trafics.getPerturbation("Paris").isEmpty());
+    assertEquals(90.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+
+    // the factor of a slowed down line must be a Double
+    try {
+      Trafics.applyBatch("Paris", new Trafics.Batch().add(Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, String>("1", "twice")));
+      fail();
+    }
+    catch (IllegalArgumentException e) {}
+    assertEquals(version, Trafics.getVersion("Paris"));
+
+    // a perturbation added and reverted in the same batch
+    Trafics.applyBatch("Paris", new Trafics.Batch().add(Trafics.Perturbation.LINE_SHUTDOWN, "1").revert("Line 1 shutdown"));
+    assertTrue(Trafics.getPerturbation("Paris").isEmpty());
+    assertEquals(90.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+  }
 
   @Test
   public void lineSlowDownTest() {
@@ -47,12 +164,14 @@ public class TraficsTest {
     Station b = new Station("BASTILLE", "1");
     Station gdl = new Station("GARE DE LYON", "1");
     Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0));
+    g = Trafics.getGraph("Paris");
     assertEquals(180.0, g.weight(b, gdl), 0.0);
     assertEquals(180.0, g.weight(gdl, b), 0.0);
     assertEquals(0.0, g.weight(b, new Station("BASTILLE", "Meta Station End")), 0.0);
     assertEquals(60.0, g.weight(b, new Station("BASTILLE", "5")), 0.0);
 
     Trafics.revertPerturbation("Paris", "Line 1 slowed down by 2.0");
+    g = Trafics.getGraph("Paris");
     assertEquals(90.0, g.weight(b, gdl), 0.0);
     assertEquals(90.0, g.weight(gdl, b), 0.0);
     assertEquals(0.0, g.weight(b, new Station("BASTILLE", "Meta Station End")), 0.0);
@@ -60,10 +179,24 @@ public class TraficsTest {
   }
 
 
+  @Test
+  public void partOfLineDistinctStringsTest() {
+    // the lines are compared by value, not by reference
+    Station b = new Station("BASTILLE", new String("1"));
+    Station gdl = new Station("GARE DE LYON", new String("1"));
+    LayeredWGraph.Layer<Station> layer = Trafics.partOfLineShutDown("Paris", b, gdl);
+    assertNotNull(layer);
+    assertEquals(Double.POSITIVE_INFINITY, layer.factor(b, gdl), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, layer.factor(gdl, b), 0.0);
+    assertEquals(1.0, layer.factor(b, new Station("BASTILLE", "5")), 0.0);
+  }
+
+
   @Test
   public void entireStationShutDownTest() {
     WGraph<Station> g = Trafics.getGraph("Paris");
     Trafics.addPerturbation("Paris", Trafics.Perturbation.ENTIRE_STATION_SHUT_DOWN, "BASTILLE");
+    g = Trafics.getGraph("Paris");
     assertEquals(Double.POSITIVE_INFINITY, g.weight(new Station("BASTILLE", "5"), new Station("BASTILLE", "1")), 0.0);
     String[] lines = {"1", "5", "8"};
     for (String line : lines) {
@@ -79,6 +212,7 @@ public class TraficsTest {
     assertEquals(180.0, dist.get(new Station("GARE DE LYON", "1")), 0.0);
 
     Trafics.revertPerturbation("Paris", "Station BASTILLE shutdown");
+    g = Trafics.getGraph("Paris");
     assertEquals(60.0, g.weight(new Station("BASTILLE", "5"), new Station("BASTILLE", "1")), 0.0);
     for (String line : lines) {
       assertEquals(0.0, g.weight(new Station("BASTILLE", line), new Station("BASTILLE", "Meta Station End")), 0.0);
@@ -92,6 +226,7 @@ public class TraficsTest {
     WGraph<Station> g = Trafics.getGraph("Paris");
     Station b = new Station("BASTILLE", "1");
     Trafics.addPerturbation("Paris", Trafics.Perturbation.PART_STATION_SHUT_DOWN, b);
+    g = Trafics.getGraph("Paris");
     assertEquals(Double.POSITIVE_INFINITY, g.weight(new Station("BASTILLE", "Meta Station Start"), b), 0.0);
     assertEquals(Double.POSITIVE_INFINITY, g.weight(b, new Station("BASTILLE", "Meta Station End")), 0.0);
     assertEquals(Double.POSITIVE_INFINITY, g.weight(b, new Station("BASTILLE", "5")), 0.0);
@@ -120,6 +255,7 @@ public class TraficsTest {
     Station s = new Station("STALINGRAD", "5");
     Station p = new Station("PORTE DE PANTIN", "5");
     Trafics.addPerturbation("Paris", Trafics.Perturbation.PART_LINE_SHUT_DOWN, new Pair<Station, Station>(j, o));
+    g = Trafics.getGraph("Paris");
     assertEquals(Double.POSITIVE_INFINITY, g.weight(j, l), 0.0);
     assertEquals(Double.POSITIVE_INFINITY, g.weight(l, j), 0.0);
     assertEquals(Double.POSITIVE_INFINITY, g.weight(o, l), 0.0);
@@ -142,6 +278,7 @@ public class TraficsTest {
     Station p = new Station("PORTE DE PANTIN", "5");
     Object[] objs = {j, o, 2.0};
     Trafics.addPerturbation("Paris", Trafics.Perturbation.PART_LINE_SLOW_DOWN, objs);
+    g = Trafics.getGraph("Paris");
     assertEquals(180.0, g.weight(j, l), 0.0);
     assertEquals(180.0, g.weight(l, j), 0.0);
     assertEquals(180.0, g.weight(o, l), 0.0);
@@ -162,6 +299,7 @@ public class TraficsTest {
     Station c8 = new Station("CONCORDE", "8");
 
     Trafics.addPerturbation("Paris", Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, 2.0);
+    g = Trafics.getGraph("Paris");
     assertEquals(180.0, g.weight(m8, c8), 0.0);
     assertEquals(180.0, g.weight(c8, m8), 0.0);
 
@@ -172,6 +310,7 @@ public class TraficsTest {
     assertEquals(0.0, g.weight(c1, c), 0.0);
 
     Trafics.revertPerturbation("Paris", "Trafic is slowed down by 2.0 everywhere");
+    g = Trafics.getGraph("Paris");
     assertEquals(90.0, g.weight(m8, c8), 0.0);
     assertEquals(90.0, g.weight(c8, m8), 0.0);
 
@@ -182,4 +321,53 @@ public class TraficsTest {
     assertEquals(0.0, g.weight(c1, c), 0.0);
   }
 
+
+  @Test
+  public void lazyLoadingTest() {
+    assertTrue(Trafics.unload("Orly"));
+    assertFalse(Trafics.isLoaded("Orly"));
+    assertTrue(Trafics.getCities().contains("Orly"));
+    long version = Trafics.getVersion("Orly");
+    assertTrue(Trafics.isLoaded("Orly"));
+    assertNotNull(Trafics.getGraph("Orly"));
+
+    Trafics.addPerturbation("Orly", Trafics.Perturbation.ALL_TRAFICS_SLOW_DOWN, 2.0);
+    assertFalse(Trafics.unload("Orly"));
+    assertTrue(Trafics.isLoaded("Orly"));
+    Trafics.revertPerturbation("Orly", "Trafic is slowed down by 2.0 everywhere");
+    assertTrue(Trafics.unload("Orly"));
+    assertFalse(Trafics.isLoaded("Orly"));
+
+    assertNotEquals(version, Trafics.getVersion("Orly"));
+    assertFalse(Trafics.load("Atlantis"));
+    assertNull(Trafics.getGraph("Atlantis"));
+  }
+
+
+  @Test
+  public void concurrentSnapshotTest() throws InterruptedException {
+    Station b = new Station("BASTILLE", "1");
+    Station gdl = new Station("GARE DE LYON", "1");
+    Station n = new Station("NATION", "1");
+    Station rd = new Station("REUILLY - DIDEROT", "1");
+    boolean[] torn = {false};
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 20; i++) {
+        Trafics.addPerturbation("Paris", Trafics.Perturbation.LINE_SLOW_DOWN, new Pair<String, Double>("1", 2.0));
+        Trafics.revertPerturbation("Paris", "Line 1 slowed down by 2.0");
+      }
+    });
+    writer.start();
+    while (writer.isAlive()) {
+      // a snapshot is either entirely slowed down or not at all
+      WGraph<Station> g = Trafics.getGraph("Paris");
+      double w = g.weight(b, gdl);
+      if (g.weight(gdl, b) != w || g.weight(n, rd) != w || (w != 90.0 && w != 180.0)) torn[0] = true;
+    }
+    writer.join();
+    assertFalse(torn[0]);
+    assertTrue(Trafics.getPerturbation("Paris").isEmpty());
+    assertEquals(90.0, Trafics.getGraph("Paris").weight(b, gdl), 0.0);
+  }
+
 }
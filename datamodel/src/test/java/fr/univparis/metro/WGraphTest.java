@@ -157,4 +157,27 @@ public class WGraphTest{
 
   }
 
+  @Test
+  public void predecessorsTest() {
+    assertTrue(g.predecessors("LAUMIERE").contains("OURCQ"));
+    assertFalse(g.predecessors("OURCQ").contains("LAUMIERE"));
+    assertEquals(2, g.predecessors("Jaures").size());
+
+    g.removeEdge("LAUMIERE", "Jaures");
+    assertFalse(g.predecessors("Jaures").contains("LAUMIERE"));
+
+    g.deleteVertex("Stade de rugby");
+    assertTrue(g.predecessors("Jaures").isEmpty());
+    assertFalse(g.predecessors("Fac des Maths-Info").contains("Stade de rugby"));
+
+    g.splitVertex("LAUMIERE", "LAUMIERE1", "LAUMIERE2");
+    assertTrue(g.predecessors("LAUMIERE1").contains("OURCQ"));
+    assertFalse(g.predecessors("LAUMIERE1").contains("LAUMIERE"));
+
+    WGraph<String> h = g.clone();
+    h.removeEdge("OURCQ", "LAUMIERE1");
+    assertTrue(g.predecessors("LAUMIERE1").contains("OURCQ"));
+    assertFalse(h.predecessors("LAUMIERE1").contains("OURCQ"));
+  }
+
 }
@@ -1,6 +1,6 @@
 package fr.univparis.metro;
 
-import java.util.TreeSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Collections;
 import java.util.ArrayList;
@@ -56,12 +56,20 @@ public class PathVue {
   * @return a description of an itinerary and its time using floyd algorithm
   */
   public static String limitedConnexionPathWithFloyd(WGraph<Station> g, Station from, Station to){
+    return limitedConnexionPathWithFloyd(FloydCache.compute(g), from, to);
+  }
+
+ /**
+  * Return a description of an itinerary and its time using matrices on which floyd algorithm has already been executed
+  * @param matriceGraph the matrices of the whole subway network, they are not modified
+  * @param from the start staion of the itinerary
+  * @param to the destination of the itinerary
+  * @return a description of an itinerary and its time using floyd algorithm
+  */
+  public static String limitedConnexionPathWithFloyd(MatriceWGraph matriceGraph, Station from, Station to){
     String start = from.getName();
     String end = to.getName();
     String body = "";
-    HashMap<String, MatriceWGraph> lines = MatriceWGraph.initializeAllLineGraphs(g);
-    MatriceWGraph matriceGraph = new MatriceWGraph(g, lines);
-    LimitedConnectionSearch.floyd(matriceGraph.getDirect(), matriceGraph.getVia(), matriceGraph.getIntermediate());
     ArrayList<Pair<String, String>> l = LimitedConnectionSearch.getPath(matriceGraph, start, end);
     String str1 = l.get(0).getObj();
     Collections.reverse(l);
@@ -89,177 +97,109 @@ public class PathVue {
   }
 
 
-  private static String path(HashMap<Pair<Station, Integer>,Pair<Station, Integer>> prev, Pair<Station, Integer> to) {
-    LinkedList<Pair<Station, Integer>> path = buildPath(prev, to);
-
+  private static String path(LinkedList<Station> path, Station to) {
     path.removeFirst(); // on enlève la meta station start...
     path.removeLast();  // ...et la meta station end
 
-    String from = path.getFirst().getObj().getName();
-    String line = path.getFirst().getObj().getLine();
+    String from = path.getFirst().getName();
+    String line = path.getFirst().getLine();
     String res = "Departure : " + from + "<br><br>"+"line " + line + " : " + from + " -> ";
-    for (Pair<Station, Integer> st : path) {
-      if (!st.getObj().getLine().equals(line)) {
-        res += st.getObj().getName() + "<br>" + "line " + st.getObj().getLine() + " : " + st.getObj().getName() + " -> ";
-        line = st.getObj().getLine();
+    for (Station st : path) {
+      if (!st.getLine().equals(line)) {
+        res += st.getName() + "<br>" + "line " + st.getLine() + " : " + st.getName() + " -> ";
+        line = st.getLine();
       }
     }
-    res += to.getObj().getName() + "<br><br>Arrival: " + to.getObj().getName();
+    res += to.getName() + "<br><br>Arrival: " + to.getName();
     return res;
   }
 
 
-  ///////////////////////////////////////////////////
-  // limited connection path with BouarahAlgorithm //
-  ///////////////////////////////////////////////////
-
-  private static <T> boolean isThereAnyPath(HashMap<T, Double> dist, T to) {
-    return dist.containsKey(to) && !dist.get(to).equals(Double.POSITIVE_INFINITY);
-  }
+  ///////////////////////////////////////////////
+  // limited connection path with ParetoSearch //
+  ///////////////////////////////////////////////
 
  /**
-  * Return a description of an itinerary and its time using Bouarah algorithm
+  * Return a description of the itinerary with the fewest correspondances and its time.
+  * The itinerary is the first of the Pareto front given by {@link ParetoSearch}, which is computed in a single search.
   * @param g the graph representing the subway
   * @param start the start sttaion of the itinerary
   * @param to the destination of the itinerary
-  * @return a description of an itinerary and its time using Bouarah algorithm
+  * @return a description of an itinerary and its time
   */
   public static String limitedConnectionPath(WGraph<Station> g, Station start, Station to) {
-    // on lance Dijkstra pour vérifier l'existence du chemin
-    HashMap<Station, Station> prev = new HashMap<Station, Station>();
-    HashMap<Station, Double> dist = new HashMap<Station, Double>();
-    Dijkstra.shortestPath(g, start, prev, dist);
-    if( !isThereAnyPath(dist,to) ) {
+    BiPredicate<Station, Station> sameLine = Station::sameLine;
+    ArrayList<ParetoSearch.Label<Station>> front = ParetoSearch.front(g, start, to, sameLine);
+    if (front.isEmpty()) {
       return "Due to actual trafics perturbation we couldn't find any path from " + start.getName() + " to " + to.getName();
     }
-
-    // on lance ensuite BouarahAlgorithm pour trouver un chemin en un nombre minimal de correspondances
-    HashMap<Pair<Station, Integer>, Pair<Station, Integer>> prevLimited = new HashMap<Pair<Station, Integer>, Pair<Station, Integer>>();
-    HashMap<Pair<Station, Integer>, Double> distLimited = new HashMap<Pair<Station, Integer>, Double>();
-    BiPredicate<Station, Station> sameLine = (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station");
-    int limit = 0;
-    Pair<Station, Integer> toLimited = new Pair<Station, Integer>(to, limit);
-
-    while( true ) { // le chemin existe
-      BouarahAlgorithm.shortestPath(g, start, limit, sameLine, prevLimited, distLimited);
-      if( isThereAnyPath(distLimited, toLimited) )
-      break;
-      limit += 1;
-      toLimited.setValue(limit);
-    }
-    String time = time(distLimited.get(toLimited));
-    String itinerary = path(prevLimited, toLimited);
+    ParetoSearch.Label<Station> fewest = front.get(0);
+    String time = time(fewest.getTime());
+    String itinerary = path(fewest.getPath(), to);
     return "<h2>Time</h2>\n" + time + "\n" + "<h2>Itinerary</h2>\n" + itinerary;
   }
 
 
-  /////////////////////////////////
-  // multiple path with Dijkstra //
-  /////////////////////////////////
-
-  private static String path(HashMap<Station, Station> prev, Station to, ArrayList<Pair<Station, Station>> changingStation) {
-    changingStation.clear();
-
-    LinkedList<Station> path = buildPath(prev, to);
+  ////////////////////////////
+  // multiple path with Yen //
+  ////////////////////////////
 
+  private static String detailedPath(LinkedList<Station> path, Station to) {
     path.removeFirst(); // on enlève la meta station start...
     path.removeLast();  // ...et la meta station end
 
     String from = path.getFirst().getName();
     String line = path.getFirst().getLine();
     String res = "<strong>Departure :</strong><em> " + from + "</em><br><br>"+"<strong>line " + line + " :</strong> " + from + " -> ";
-    Station prec = null;
     for (Station st : path) {
       if (!st.getLine().equals(line)) {
-        changingStation.add(new Pair<Station, Station>(prec, st));
         res += st.getName() + "<br>" + "<strong>line " + st.getLine() + " :</strong> " + st.getName() + " -> ";
         line = st.getLine();
       }
-      prec = st;
     }
     res += to.getName() + "<br><br><strong>Arrival :</strong><em> " + to.getName() + "</em></div>";
     return res;
   }
 
  /**
-  * Return descriptions of itineraries using Dijkstra multiple times
+  * Return descriptions of the fastest itinerary and of its alternatives.
+  * The alternatives are the next shortest itineraries given by {@link KShortestPaths}, at most 20% longer than the fastest one
+  * and with at most 3 correspondances. The graph is not modified.
   * @param g the graph representing the subway
   * @param start the start sttaion of the itineraries
   * @param to the destination of the itineraries
   * @return descriptions of itineraries
   */
   public static String multiplePath(WGraph<Station> g, Station start, Station to) {
-    TreeSet<Pair<String, Double>> resAux = new TreeSet<Pair<String, Double>>((p1, p2) -> {
-      if (p1.getValue() < p2.getValue()) return -1;
-      if (p1.getValue() > p2.getValue()) return 1;
-      else {
-        return p1.getObj().hashCode() - p2.getObj().hashCode();
-      }
-    });
-    double THRESHOLD = 1.2;
-    HashMap<Station, Station> prev = new HashMap<Station, Station>();
-    HashMap<Station, Double> dist = new HashMap<Station, Double>();
-    ArrayList<Pair<Station, Station>> changingStation  = new ArrayList<Pair<Station, Station>>();
-    Dijkstra.shortestPath(g, start, prev, dist);
-    try {
-      resAux.add(new Pair<String, Double>(
-      "<div><h2>Time</h2>\n" +
-      time(dist.get(to)) +
-      "<h2>Itinerary</h2>" +
-      path(prev, to, changingStation),
-      dist.get(to)
-      ));
-
-    } catch(RuntimeException e) {
-      return "Due to actual trafics perturbation we couldn't find any path from " + start.getName() + " to " + to.getName();
-    }
-
-    multiplePathAux(g, start, to, changingStation, resAux, THRESHOLD * dist.get(to), 0);
-
-    String res = "";
-    for (Pair<String, Double> p : resAux) {
-      res += p.getObj();
-    }
-    return res;
+    return multiplePath(g, null, null, start, to);
   }
 
-  private static void multiplePathAux(WGraph<Station> g, Station start, Station to, ArrayList<Pair<Station, Station>> changingStation, TreeSet<Pair<String, Double>> resAux, Double threshold, int depth) {
+ /**
+  * Return descriptions of the fastest itinerary and of its alternatives, as {@link #multiplePath(WGraph, Station, Station)}.
+  * The fastest itinerary is given by the contraction hierarchy if there is one, the alternatives are searched with A* if there are landmarks.
+  * @param g the graph representing the subway
+  * @param hierarchy the contraction hierarchy of g, or null
+  * @param landmarks the landmarks used by A*, valid for g, or null to use Dijkstra
+  * @param start the start sttaion of the itineraries
+  * @param to the destination of the itineraries
+  * @return descriptions of itineraries
+  */
+  public static String multiplePath(WGraph<Station> g, ContractionHierarchy<Station> hierarchy, Landmarks<Station> landmarks, Station start, Station to) {
+    int MAX_PATHS = 5;
+    double THRESHOLD = 1.2;
     int MAX_CORRESPONDANCES = 3;
-    int MAX_DEPTH = 5;
-    if (depth >= MAX_DEPTH) return;
-
-    HashMap<Station, Station> prev = new HashMap<Station, Station>();
-    HashMap<Station, Double> dist = new HashMap<Station, Double>();
-    for (Pair<Station, Station> p : changingStation) {
-      WGraph<Station> revert = new WGraph<Station>();
-      Station st = p.getObj();
-      revert.addVertex(st);
-      for (Station n : g.neighbors(st)) {
-        if (n.getName().equals(st.getName()) && ! n.getLine().startsWith("Meta Station")) {
-          // Changin are on both sides
-          revert.addVertex(n);
-          revert.addEdge(st, n, g.weight(st, n));
-          g.setWeight(st, n, Double.POSITIVE_INFINITY);
-        }
-      }
-      ArrayList<Pair<Station, Station>> pChangingStation = new ArrayList<Pair<Station, Station>>();
-      Dijkstra.shortestPath(g, start, prev, dist);
-      if (dist.get(to) <= threshold) {
-        String itinerary = path(prev, to, pChangingStation);
-        if (pChangingStation.size() <= MAX_CORRESPONDANCES) {
-          resAux.add(new Pair<String, Double>(
-          "<div><h2>Time</h2>\n" +
-          time(dist.get(to)) +
-          "<h2>Itinerary</h2>" +
-          itinerary + "</div>",
-          dist.get(to)
-          ));
-          multiplePathAux(g, start, to, pChangingStation, resAux, threshold, depth + 1);
-        }
+    BiPredicate<Station, Station> sameLine = Station::sameLine;
+    ArrayList<Pair<LinkedList<Station>, Double>> paths = KShortestPaths.paths(g, hierarchy, landmarks, start, to, MAX_PATHS, THRESHOLD, sameLine, MAX_CORRESPONDANCES);
+    if (paths.isEmpty()) {
+      return "Due to actual trafics perturbation we couldn't find any path from " + start.getName() + " to " + to.getName();
+    }
 
-      }
-      g.apply(revert);
+    // two paths may only differ by stations which are not shown
+    LinkedHashSet<String> res = new LinkedHashSet<String>();
+    for (Pair<LinkedList<Station>, Double> p : paths) {
+      res.add("<div><h2>Time</h2>\n" + time(p.getValue()) + "<h2>Itinerary</h2>" + detailedPath(p.getObj(), to));
     }
+    return String.join("", res);
   }
 
 }
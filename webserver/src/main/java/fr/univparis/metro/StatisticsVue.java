@@ -1,41 +1,38 @@
 package fr.univparis.metro;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 /**
  * Class that store all the Statistics as html String description
  */
 public class StatisticsVue {
-  private static HashMap<String, String> statisticsHtml;
+  // the statistics are read without any lock, they are computed with the lock of their city
+  private static final ConcurrentHashMap<String, String> statisticsHtml = new ConcurrentHashMap<String, String>();
+  private static final ConcurrentHashMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
 
-/**
- * Initialize Statistics as String so that they are displayable in the webserver
- */
-  public static void initStatistics() {
-    statisticsHtml = new HashMap<String, String>();
-    for (String city : Configuration.getCitiesName()) {
-      WGraph<Station> g = Trafics.getInitialGraph(city);
-      Pair<Pair<Station, Station>, Double> stat1 = Statistics.mostDistantStations(g, (s -> !s.getLine().equals("Meta Station Start")), (t -> t.getLine().equals("Meta Station End")));
-      int stat2 = Statistics.minimumCorrespondence(g, (s -> s.getLine().equals("Meta Station Start")), s -> s.getLine().equals("Meta Station End") , (Station s1, Station s2) -> s1.getLine().equals(s2.getLine()) || s1.getLine().startsWith("Meta Station") || s2.getLine().startsWith("Meta Station"));
-      String stat3 = Statistics.extremumLine(g, true);
-      String stat4 = Statistics.extremumLine(g, false);
-      HashMap<String, Double> res = new HashMap<String, Double>();
-      int stat5 = Statistics.averageTimeOnEachLine(g, res);
-      int stat6 = Statistics.averageNbOfStationPerLine(g);
-      Pair<String, Double> stat7 = Statistics.longestTimeTravelLine(g);
-      Pair<String, Double> stat8 = Statistics.shortestTimeTravelLine(g);
-      statisticsHtml.put(city, statsToString(stat1, stat2, stat3, stat4, stat5, stat6, stat7, stat8));
-    }
+  private static String computeStatistics(WGraph<Station> g, LineIndex lines) {
+    Pair<Pair<Station, Station>, Double> stat1 = Statistics.mostDistantStations(g, (s -> !s.getLine().equals("Meta Station Start")), (t -> t.getLine().equals("Meta Station End")));
+    Pair<Pair<Station, Station>, Integer> stat2 = Statistics.minimumCorrespondenceWitness(g, (s -> s.getLine().equals("Meta Station Start")), s -> s.getLine().equals("Meta Station End") , Station::sameLine);
+    // every figure about the lines is computed at once
+    LineMetrics metrics = new LineMetrics(g, lines);
+    String stat3 = metrics.getExtremumLine(true);
+    String stat4 = metrics.getExtremumLine(false);
+    int stat5 = metrics.getAverageTime();
+    int stat6 = metrics.getAverageNbOfStations();
+    Pair<String, Double> stat7 = metrics.getLongestLine();
+    Pair<String, Double> stat8 = metrics.getShortestLine();
+    return statsToString(stat1, stat2, stat3, stat4, stat5, stat6, stat7, stat8);
   }
 
 
-  private static String statsToString(Pair<Pair<Station, Station>, Double> stat1, int stat2, String stat3, String stat4, int stat5, int stat6, Pair<String, Double> stat7, Pair<String, Double> stat8) {
+  private static String statsToString(Pair<Pair<Station, Station>, Double> stat1, Pair<Pair<Station, Station>, Integer> stat2, String stat3, String stat4, int stat5, int stat6, Pair<String, Double> stat7, Pair<String, Double> stat8) {
     Double[] time1 = WebserverLib.doubleToTime(stat1.getValue());
     Double[] time5 = WebserverLib.doubleToTime((double) stat5);
     Double[] time7 = WebserverLib.doubleToTime(stat7.getValue());
     Double[] time8 = WebserverLib.doubleToTime(stat8.getValue());
     return "<h3>The longest traject between two stations :</h3>Traject : " + stat1.getObj().getObj().getName() + " to " + stat1.getObj().getValue().getName()
     + "<br>Time : " + time1[0] + "h "+ time1[1] + "min " + time1[2] + "sec<br>" +
-    "<h3>Number minimum of correspondence to do all the possible trajects on the network :</h3> " + stat2 +"<br>" +
+    "<h3>Number minimum of correspondence to do all the possible trajects on the network :</h3> " + stat2.getValue() +"<br>" +
+    ((stat2.getObj().getObj() == null) ? "" : "For example from " + stat2.getObj().getObj().getName() + " to " + stat2.getObj().getValue().getName() + "<br>") +
     "<h3> The average number of stations per line :</h3> " + stat6 + "<br><h3>The line with the most stations :</h3> line " + stat3 + "<br>" +
     "<h3>The line with the least stations :</h3> line " + stat4 + "<br>" +
     "<h3>The average time from one terminus of a line to the other :</h3> " + time5[0] + "h "+ time5[1] + "min " + time5[2] + "sec<br>" +
@@ -44,12 +41,42 @@ public class StatisticsVue {
 
   }
   /**
-  * Return a String containing information about the network of city
+  * Return a String containing information about the network of city under its actual trafics.
+  * It is computed again on every call, but the figures are only updated for the trips modified since the last version (see {@link LiveStatistics}).
   * @param city the city in which we want statistics
-  * @return a String containing information about the network of city
+  * @return a String containing information about the actual network of city, or an empty String if the city isn't in the Configuration
+  */
+  public static String getLiveStatistics(String city) {
+    LiveStatistics.Snapshot live = LiveStatistics.get(city);
+    if (live == null) return "";
+    Pair<Pair<Station, Station>, Double> longest = live.getLongestTrip();
+    int impossible = live.getImpossibleTrips();
+    if (longest.getObj().getObj() == null) return "<h3>No traject is possible right now</h3>";
+    Double[] time = WebserverLib.doubleToTime(longest.getValue());
+    return "<h3>The longest traject between two stations right now :</h3>Traject : " + longest.getObj().getObj().getName() + " to " + longest.getObj().getValue().getName()
+    + "<br>Time : " + time[0] + "h "+ time[1] + "min " + time[2] + "sec<br>" +
+    "<h3>Number of trajects which are not possible right now :</h3> " + impossible + "<br>";
+  }
+
+  /**
+  * Return a String containing information about the network of city, it is computed on the first call.
+  * Only the requests of a city whose statistics are being computed wait for them, the other cities are not blocked.
+  * @param city the city in which we want statistics
+  * @return a String containing information about the network of city, or null if the city isn't in the Configuration
   */
   public static String getStringStatistics(String city) {
-    return statisticsHtml.get(city);
+    String res = statisticsHtml.get(city);
+    if (res != null) return res;
+    WGraph<Station> g = Trafics.getInitialGraph(city);
+    if (g == null) return null;
+    synchronized (locks.computeIfAbsent(city, c -> new Object())) {
+      res = statisticsHtml.get(city);
+      if (res == null) {
+        res = computeStatistics(g, Trafics.getLineIndex(city));
+        statisticsHtml.put(city, res);
+      }
+      return res;
+    }
   }
 
 }
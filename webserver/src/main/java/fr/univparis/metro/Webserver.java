@@ -3,6 +3,10 @@ import io.javalin.*;
 import io.javalin.plugin.rendering.template.TemplateUtil;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 /**
  * Main class for the Webserver where all the webpages are installed
  */
@@ -10,15 +14,46 @@ public class Webserver {
   public static void main(String[] args) {
     Configuration.loadFrom(Webserver.class.getResourceAsStream("/cities.json"));
     Trafics.initTrafics();
-    StatisticsVue.initStatistics();
-    Javalin app = launch();
+    install(launch());
+    if (! Boolean.getBoolean("metro.lazy")) warmUp();
+  }
+
+ /**
+  * Install all the webpages in an app
+  * @param app the javalin app
+  * @return the app
+  */
+  static Javalin install(Javalin app) {
     installIndex(app);
     installCity(app);
     installToCity(app);
     installItinerary(app);
     installAddPerturbation(app);
     installRemovePerturbation(app);
+    installBatchPerturbation(app);
     installStatistics(app);
+    return app;
+  }
+
+ /**
+  * Load every city with its caches and statistics in a background thread, so that the first requests don't have to wait for them.
+  * The cities are loaded on demand anyway, so the server doesn't wait for this thread (it is skipped with -Dmetro.lazy=true).
+  * @return the thread warming up the cities, which is already started
+  */
+  public static Thread warmUp() {
+    Thread t = new Thread(() -> {
+      for (String city : Trafics.getCities()) {
+        Trafics.load(city);
+        StatisticsVue.getStringStatistics(city);
+        FloydCache.get(city);
+        LandmarkCache.get(city);
+        HierarchyCache.get(city);
+        LiveStatistics.get(city);
+      }
+    }, "webserver-warm-up");
+    t.setDaemon(true);
+    t.start();
+    return t;
   }
 
  /**
@@ -48,9 +83,10 @@ public class Webserver {
 
   private static void installItinerary(Javalin app) {
     app.post("/:city/itinerary", ctx -> {
-      WGraph<Station> g = Trafics.getGraph(ctx.pathParam("city")).clone();
-      Station start = new Station(ctx.formParam("start"), "Meta Station Start");
-      Station end = new Station(ctx.formParam("end"), "Meta Station End");
+      WGraph<Station> g = Trafics.getGraph(ctx.pathParam("city"));
+      StationRegistry registry = Trafics.getRegistry(ctx.pathParam("city"));
+      Station start = registry.lookup(ctx.formParam("start"), "Meta Station Start");
+      Station end = registry.lookup(ctx.formParam("end"), "Meta Station End");
       String body = "";
       if (! g.getVertices().contains(start)){
         body = start.getName() + " doesn't exist";
@@ -59,13 +95,21 @@ public class Webserver {
         body = end.getName() + " doesn't exist";
       }
       else if (ctx.formParam("type").equals("shortest")) {
-        body = PathVue.multiplePath(g, start, end);
+        String city = ctx.pathParam("city");
+        ContractionHierarchy<Station> hierarchy = HierarchyCache.get(city);
+        Landmarks<Station> landmarks = LandmarkCache.get(city);
+        // the caches are checked against the actual trafics, which may have changed since g was read
+        if (Trafics.getGraph(city) != g) {
+          hierarchy = null;
+          landmarks = null;
+        }
+        body = PathVue.multiplePath(g, hierarchy, landmarks, start, end);
       }
       else if(ctx.formParam("type").equals("leastConnexion")){
         body = PathVue.limitedConnectionPath(g, start, end);
       }
       else if(ctx.formParam("type").equals("leastConnexionFloyd")){
-        body = PathVue.limitedConnexionPathWithFloyd(g, start, end);
+        body = PathVue.limitedConnexionPathWithFloyd(FloydCache.get(ctx.pathParam("city")), start, end);
       }
       ctx.render("/public/itinerary.ftl", TemplateUtil.model("body", body));
     });
@@ -93,41 +137,113 @@ public class Webserver {
     app.post("/:city/addPerturbation", ctx -> {
       String city = ctx.pathParam("city");
       Trafics.Perturbation type = Trafics.Perturbation.valueOf(ctx.formParam("type"));
-      Object parameter = null;
-      switch (type) {
-        case LINE_SHUTDOWN:
-        parameter = ctx.formParam("line");
-        break;
-        case LINE_SLOW_DOWN:
-        parameter = new Pair<String, Double>(ctx.formParam("line"), Double.valueOf(ctx.formParam("times")));
-        break;
-        case ENTIRE_STATION_SHUT_DOWN:
-        parameter = ctx.formParam("station_name");
-        break;
-        case PART_STATION_SHUT_DOWN:
-        parameter = new Station(ctx.formParam("station_name"), ctx.formParam("station_line"));
-        break;
-        case PART_LINE_SHUT_DOWN:
-        String line1 = ctx.formParam("line");
-        parameter = new Pair<Station, Station>(new Station(ctx.formParam("start_station"), line1), new Station(ctx.formParam("end_station"), line1));
-        break;
-        case PART_LINE_SLOW_DOWN:
-        parameter = new Object[3];
-        String line2 = ctx.formParam("line");
-        ((Object[]) parameter)[0] = new Station(ctx.formParam("start_station"), line2);
-        ((Object[]) parameter)[1] = new Station(ctx.formParam("end_station"), line2);
-        ((Object[]) parameter)[2] = Double.valueOf(ctx.formParam("times"));
-        break;
-        case ALL_TRAFICS_SLOW_DOWN:
-        parameter = Double.valueOf(ctx.formParam("times"));
-        break;
-      }
-
-      Trafics.addPerturbation(city, type, parameter);
+      Trafics.addPerturbation(city, type, perturbationParameter(type, Trafics.getRegistry(city), ctx::formParam));
       ctx.redirect("/" + city);
     });
   }
 
+ /**
+  * Builds the parameter of a perturbation from the fields of a form or of a json object
+  * @param type the type of the perturbation
+  * @param registry the registry of the stations of the city
+  * @param field gives the value of a field (line, times, station_name, station_line, start_station or end_station), null if it is missing
+  * @return the parameter of the perturbation as expected by {@link Trafics#addPerturbation(String, Trafics.Perturbation, Object)}
+  * @throws IllegalArgumentException if a field needed by the perturbation is missing, if times isn't a number or if a station doesn't exist
+  */
+  private static Object perturbationParameter(Trafics.Perturbation type, StationRegistry registry, Function<String, String> field) {
+    Object parameter = null;
+    switch (type) {
+      case LINE_SHUTDOWN:
+      parameter = required(field, "line");
+      break;
+      case LINE_SLOW_DOWN:
+      parameter = new Pair<String, Double>(required(field, "line"), times(field));
+      break;
+      case ENTIRE_STATION_SHUT_DOWN:
+      parameter = required(field, "station_name");
+      break;
+      case PART_STATION_SHUT_DOWN:
+      parameter = station(registry, required(field, "station_name"), required(field, "station_line"));
+      break;
+      case PART_LINE_SHUT_DOWN:
+      String line1 = required(field, "line");
+      parameter = new Pair<Station, Station>(station(registry, required(field, "start_station"), line1), station(registry, required(field, "end_station"), line1));
+      break;
+      case PART_LINE_SLOW_DOWN:
+      parameter = new Object[3];
+      String line2 = required(field, "line");
+      ((Object[]) parameter)[0] = station(registry, required(field, "start_station"), line2);
+      ((Object[]) parameter)[1] = station(registry, required(field, "end_station"), line2);
+      ((Object[]) parameter)[2] = times(field);
+      break;
+      case ALL_TRAFICS_SLOW_DOWN:
+      parameter = times(field);
+      break;
+    }
+    return parameter;
+  }
+
+  private static String required(Function<String, String> field, String name) {
+    String value = field.apply(name);
+    if (value == null) throw new IllegalArgumentException("The field " + name + " is missing");
+    return value;
+  }
+
+  private static Double times(Function<String, String> field) {
+    String value = required(field, "times");
+    try {
+      return Double.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("The field times must be a number, not " + value);
+    }
+  }
+
+  private static Station station(StationRegistry registry, String name, String line) {
+    Station s = registry.lookup(name, line);
+    // a station which isn't in the network isn't interned
+    if (s.getId() < 0) throw new IllegalArgumentException("There is no station " + name + " on the line " + line);
+    return s;
+  }
+
+ /**
+  * Adds and reverts several perturbations at once, published as a single version of the trafics.
+  * The body is a json object such as {"add": [{"type": "LINE_SLOW_DOWN", "line": "1", "times": 2}], "revert": ["name"]},
+  * the reverts are applied after the additions. The answer gives the new version and the active perturbations,
+  * or has the status 400 if the body or a parameter is wrong, in which case nothing is modified.
+  */
+  private static void installBatchPerturbation(Javalin app) {
+    app.post("/:city/batchPerturbation", ctx -> {
+      String city = ctx.pathParam("city");
+      if (! Trafics.getCities().contains(city)) {
+        ctx.status(404);
+        return;
+      }
+      Trafics.Batch batch = new Trafics.Batch();
+      Trafics.Snapshot snapshot;
+      try {
+        JSONObject body = new JSONObject(ctx.body());
+        StationRegistry registry = Trafics.getRegistry(city);
+        JSONArray add = body.optJSONArray("add");
+        for (int i = 0; add != null && i < add.length(); i++) {
+          JSONObject p = add.getJSONObject(i);
+          Trafics.Perturbation type = Trafics.Perturbation.valueOf(p.getString("type"));
+          batch.add(type, perturbationParameter(type, registry, f -> p.has(f) ? p.get(f).toString() : null));
+        }
+        JSONArray revert = body.optJSONArray("revert");
+        for (int i = 0; revert != null && i < revert.length(); i++) batch.revert(revert.getString(i));
+        snapshot = Trafics.applyBatch(city, batch);
+      }
+      catch (JSONException | IllegalArgumentException e) {
+        ctx.status(400).result(new JSONObject().put("error", String.valueOf(e.getMessage())).toString()).contentType("application/json");
+        return;
+      }
+      JSONObject res = new JSONObject();
+      res.put("version", snapshot.getVersion());
+      res.put("perturbations", new JSONArray(snapshot.getPerturbations()));
+      ctx.result(res.toString()).contentType("application/json");
+    });
+  }
+
   private static void installRemovePerturbation(Javalin app) {
     app.post("/:city/removePerturbation", ctx -> {
       String city = ctx.pathParam("city");
@@ -143,7 +259,8 @@ public class Webserver {
     app.get("/:city/statistics", ctx -> {
       String city = ctx.pathParam("city");
       ctx.render("/public/statistics.ftl", TemplateUtil.model(
-      "stat1", StatisticsVue.getStringStatistics(city)
+      "stat1", StatisticsVue.getStringStatistics(city),
+      "live", StatisticsVue.getLiveStatistics(city)
       ));
     });
   }
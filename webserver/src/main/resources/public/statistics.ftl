@@ -15,5 +15,7 @@
   <body>
     <h2>Statistics</h2>
     ${stat1}
+    <h2>Right now</h2>
+    ${live}
   </body>
 </html>
@@ -1,8 +1,17 @@
 package fr.univparis.metro;
 
+import io.javalin.Javalin;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
 
 /**
  * Unit test for simple App.
@@ -35,4 +44,55 @@ public class WebserverTest
     {
         assertTrue( true );
     }
+
+    /**
+     * A batch of perturbations is applied at once, a wrong one changes nothing
+     */
+    public void testBatchPerturbation() throws IOException
+    {
+        Configuration.loadFrom( Webserver.class.getResourceAsStream( "/cities.json" ) );
+        Trafics.initTrafics();
+        Javalin app = Webserver.install( Javalin.create().start( 0 ) );
+        String url = "http://localhost:" + app.port();
+        try {
+            long version = Trafics.getVersion( "Lille" );
+            JSONObject res = new JSONObject( post( url + "/Lille/batchPerturbation",
+                "{\"add\": [{\"type\": \"LINE_SLOW_DOWN\", \"line\": \"1\", \"times\": 2}, {\"type\": \"LINE_SHUTDOWN\", \"line\": \"2\"}]}", 200 ) );
+            assertTrue( res.getLong( "version" ) != version );
+            assertEquals( Trafics.getVersion( "Lille" ), res.getLong( "version" ) );
+            assertEquals( 2, res.getJSONArray( "perturbations" ).length() );
+            version = res.getLong( "version" );
+
+            // a missing field, a wrong number and an unknown station
+            post( url + "/Lille/batchPerturbation", "{\"add\": [{\"type\": \"LINE_SLOW_DOWN\", \"line\": \"1\"}]}", 400 );
+            post( url + "/Lille/batchPerturbation", "{\"add\": [{\"type\": \"ALL_TRAFICS_SLOW_DOWN\", \"times\": \"twice\"}]}", 400 );
+            post( url + "/Lille/batchPerturbation",
+                "{\"add\": [{\"type\": \"PART_STATION_SHUT_DOWN\", \"station_name\": \"NOWHERE\", \"station_line\": \"1\"}], \"revert\": [\"Line 2 shutdown\"]}", 400 );
+            assertEquals( version, Trafics.getVersion( "Lille" ) );
+            assertEquals( 2, Trafics.getPerturbation( "Lille" ).size() );
+
+            post( url + "/Atlantis/batchPerturbation", "{}", 404 );
+
+            res = new JSONObject( post( url + "/Lille/batchPerturbation", "{\"revert\": [\"Line 1 slowed down by 2.0\", \"Line 2 shutdown\"]}", 200 ) );
+            assertEquals( 0, res.getJSONArray( "perturbations" ).length() );
+        }
+        finally {
+            app.stop();
+        }
+    }
+
+    // Posts a body to an url, checks the status of the answer and returns its body
+    private static String post( String url, String body, int status ) throws IOException
+    {
+        HttpURLConnection c = (HttpURLConnection) new URL( url ).openConnection();
+        c.setRequestMethod( "POST" );
+        c.setDoOutput( true );
+        try ( OutputStream out = c.getOutputStream() ) {
+            out.write( body.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        assertEquals( status, c.getResponseCode() );
+        try ( InputStream in = ( status < 400 ) ? c.getInputStream() : c.getErrorStream() ) {
+            return ( in == null ) ? "" : IOUtils.toString( in, StandardCharsets.UTF_8 );
+        }
+    }
 }